@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cache of values computed per class that does not keep class loaders alive. Classes loaded by
+ * the loader of this library, or by one of its parents, can not be unloaded before the library, so
+ * their values are kept in a concurrent map. Any other class is a weak key and its value is softly
+ * referenced, because the value usually references the class itself. Once the class loader is
+ * unreachable the value is released by the collector and the entry is removed.
+ * 
+ * @author miguel
+ *
+ * @param <V>
+ *            type of the values
+ */
+public abstract class ClassCache<V> {
+
+    private final ConcurrentMap<Class<?>, V> pinned = new ConcurrentHashMap<Class<?>, V>();
+    private final Map<Class<?>, Reference<V>> unpinned = new WeakHashMap<Class<?>, Reference<V>>();
+
+    /**
+     * Return the value of the class, computed the first time it is requested. The value may be
+     * computed more than once when two threads request it at the same time, only one of them is kept.
+     */
+    protected abstract V create(Class<?> clazz);
+
+    /**
+     * Return the cached value of the class, creating it if it does not exist yet
+     * 
+     * @param clazz
+     * @return the value of the class
+     */
+    public final V get(final Class<?> clazz) {
+        if (isPinned(clazz)) {
+            V value = pinned.get(clazz);
+            if (value == null) {
+                value = create(clazz);
+                V existing = pinned.putIfAbsent(clazz, value);
+                if (existing != null) value = existing;
+            }
+            return value;
+        }
+
+        V value = getUnpinned(clazz);
+        if (value == null) {
+            value = create(clazz);
+            synchronized (unpinned) {
+                V existing = getUnpinned(clazz);
+                if (existing != null) return existing;
+                unpinned.put(clazz, new SoftReference<V>(value));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove all the cached values
+     */
+    public final void clear() {
+        pinned.clear();
+        synchronized (unpinned) {
+            unpinned.clear();
+        }
+    }
+
+    private V getUnpinned(Class<?> clazz) {
+        synchronized (unpinned) {
+            Reference<V> reference = unpinned.get(clazz);
+            return reference != null ? reference.get() : null;
+        }
+    }
+
+    /**
+     * Return true if the class is loaded by the bootstrap loader, the loader of this library or one
+     * of its parents, otherwise return false
+     */
+    static boolean isPinned(Class<?> clazz) {
+        ClassLoader loader = clazz.getClassLoader();
+        if (loader == null) return true;
+        for (ClassLoader own = ClassCache.class.getClassLoader(); own != null; own = own.getParent()) {
+            if (own == loader) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * A deep copy engine. The way to copy each class is decided once and cached:
+ * <ul>
+ * <li>immutable types (String, boxed primitives, enums, BigDecimal...) are shared, not copied</li>
+ * <li>arrays of primitives or immutable types are copied with {@link System#arraycopy}</li>
+ * <li>collections and maps are rebuilt with the same class, ordered ones keep their comparator and
+ * bounded queues their capacity. Only the standard lists, sets, queues and hash maps are presized,
+ * the int argument of other constructors may not be a capacity hint</li>
+ * <li>other JDK classes are cloned if they are Cloneable, otherwise they can not be copied</li>
+ * <li>beans are created with their default constructor and their fields copied, primitive fields
+ * with the typed accessors so they are not boxed</li>
+ * </ul>
+ * Objects referenced more than once, including cycles, are copied once. The identity map used to
+ * track them is reused between copies of the same thread.
+ * <p/>
+ * Collections and maps whose class can not be created, e.g. the wrappers returned by
+ * {@link java.util.Collections#unmodifiableList(List)} or
+ * {@link java.util.Collections#synchronizedMap(Map)}, are copied to a standard class (ArrayList,
+ * LinkedHashSet, LinkedHashMap, TreeSet, TreeMap or PriorityQueue). The copy is modifiable and not
+ * synchronized. A LinkedHashMap is created by cloning and clearing the source, so it keeps its
+ * access order. The defaults of a Properties are copied flattened into a new defaults table.
+ * 
+ * @author miguel
+ *
+ */
+public final class DeepCopy {
+
+    private static final ClassCache<Strategy> STRATEGIES = new ClassCache<Strategy>() {
+        @Override
+        protected Strategy create(Class<?> clazz) {
+            return createStrategy(clazz);
+        }
+    };
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, Class.class, java.util.UUID.class,
+            java.util.Locale.class, java.util.regex.Pattern.class, java.net.URI.class, java.net.URL.class,
+            java.io.File.class, java.util.Currency.class));
+
+    // Immutable types that may not exist in the running JDK
+    private static final Set<String> IMMUTABLE_TYPE_NAMES = new HashSet<String>(Arrays.asList("java.time.Instant",
+            "java.time.LocalDate", "java.time.LocalTime", "java.time.LocalDateTime", "java.time.OffsetDateTime",
+            "java.time.OffsetTime", "java.time.ZonedDateTime", "java.time.Duration", "java.time.Period",
+            "java.time.Year", "java.time.YearMonth", "java.time.MonthDay", "java.time.ZoneOffset",
+            "java.time.ZoneRegion"));
+
+    // Classes whose int constructor takes the initial size of the collection
+    private static final Set<Class<?>> SIZED_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            ArrayList.class, Vector.class, ArrayDeque.class, PriorityQueue.class, PriorityBlockingQueue.class));
+
+    // Classes whose int constructor takes the initial capacity of the hash table
+    private static final Set<Class<?>> HASHED_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            HashSet.class, LinkedHashSet.class, HashMap.class, Hashtable.class, IdentityHashMap.class,
+            WeakHashMap.class, ConcurrentHashMap.class));
+
+    // Classes whose int constructor takes the capacity of the queue, a copy must keep it
+    private static final Set<Class<?>> BOUNDED_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            ArrayBlockingQueue.class, LinkedBlockingQueue.class, LinkedBlockingDeque.class));
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private DeepCopy() {
+    }
+
+    /**
+     * Return a deep copy of the object
+     * 
+     * @param object
+     *            to copy
+     * @return a deep copy of the object, or null if the object is null
+     * @throws IllegalArgumentException
+     *             if the object, or an object it references, can not be copied, e.g. a bean
+     *             without default constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static final <T> T copy(final T object) {
+        if (object == null) return null;
+
+        Scratch scratch = GraphScratch.acquire(SCRATCH);
+        try {
+            return (T) scratch.copy(object);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Return true if the instances of the class are shared instead of copied, otherwise return
+     * false
+     * 
+     * @param clazz
+     * @return true if the class is immutable, otherwise return false
+     */
+    public static final boolean isImmutable(final Class<?> clazz) {
+        return clazz != null && (clazz.isPrimitive() || IMMUTABLE_TYPES.contains(clazz) || clazz.isEnum()
+                || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())
+                || IMMUTABLE_TYPE_NAMES.contains(clazz.getName()));
+    }
+
+    private static Strategy strategy(Class<?> clazz) {
+        return STRATEGIES.get(clazz);
+    }
+
+    private static Strategy createStrategy(Class<?> clazz) {
+        // An Object has no state to copy
+        if (isImmutable(clazz) || clazz == Object.class) return SHARED;
+        if (clazz.isArray()) {
+            Class<?> componentType = clazz.getComponentType();
+            return componentType.isPrimitive() || isImmutable(componentType) ? new ArrayCopyStrategy(componentType)
+                    : new ArrayStrategy(componentType);
+        }
+        if (Collection.class.isAssignableFrom(clazz)) return new CollectionStrategy(clazz);
+        if (Map.class.isAssignableFrom(clazz)) return new MapStrategy(clazz);
+        if (ReflectionUtils.isJdkClass(clazz)) {
+            // The fields of JDK classes are not accessible, clone them when possible
+            Method clone = Cloneable.class.isAssignableFrom(clazz) ? findPublicClone(clazz) : null;
+            return clone != null ? new CloneStrategy(clone) : new UnsupportedStrategy(clazz);
+        }
+        try {
+            return new BeanStrategy(clazz);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Can not copy " + clazz.getName(), e);
+        }
+    }
+
+    private static Method findPublicClone(Class<?> clazz) {
+        try {
+            Method clone = clazz.getMethod("clone");
+            return Modifier.isPublic(clone.getDeclaringClass().getModifiers()) ? clone : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the public comparator method of an ordered collection, e.g. TreeSet or PriorityQueue,
+     * or null
+     */
+    private static Method findComparator(Class<?> clazz) {
+        try {
+            Method comparator = clazz.getMethod("comparator");
+            if (!Comparator.class.isAssignableFrom(comparator.getReturnType())) return null;
+            return Modifier.isPublic(comparator.getDeclaringClass().getModifiers()) ? comparator : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> clazz, Class<?>... parameterTypes) {
+        if (Modifier.isAbstract(clazz.getModifiers())) return null;
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // Not accessible, e.g. a constructor of a class in a closed module
+            return null;
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... args) {
+        try {
+            return constructor.newInstance(args);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Can not create an instance of "
+                    + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * The state of a copy in progress
+     */
+    private static final class Scratch extends GraphScratch<Scratch> {
+
+        private IdentityHashMap<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+        Object copy(Object object) {
+            if (object == null) return null;
+
+            Object copy = copies.get(object);
+            if (copy != null) return copy;
+            return strategy(object.getClass()).copy(object, this);
+        }
+
+        void register(Object object, Object copy) {
+            copies.put(object, copy);
+        }
+
+        @Override
+        Scratch newScratch() {
+            return new Scratch();
+        }
+
+        @Override
+        void clear() {
+            copies = reset(copies);
+        }
+    }
+
+    /**
+     * The way to copy the instances of a class
+     */
+    private abstract static class Strategy {
+
+        abstract Object copy(Object object, Scratch scratch);
+    }
+
+    private static final Strategy SHARED = new Strategy() {
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            return object;
+        }
+    };
+
+    private static final class ArrayCopyStrategy extends Strategy {
+
+        private final Class<?> componentType;
+
+        ArrayCopyStrategy(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            int length = Array.getLength(object);
+            Object copy = Array.newInstance(componentType, length);
+            System.arraycopy(object, 0, copy, 0, length);
+            scratch.register(object, copy);
+            return copy;
+        }
+    }
+
+    private static final class ArrayStrategy extends Strategy {
+
+        private final Class<?> componentType;
+
+        ArrayStrategy(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            Object[] array = (Object[]) object;
+            Object[] copy = (Object[]) Array.newInstance(componentType, array.length);
+            scratch.register(object, copy);
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = scratch.copy(array[i]);
+            }
+            return copy;
+        }
+    }
+
+    private static final class UnsupportedStrategy extends Strategy {
+
+        private final Class<?> clazz;
+
+        UnsupportedStrategy(Class<?> clazz) {
+            this.clazz = clazz;
+        }
+
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            // Sharing a mutable object, e.g. an AtomicInteger, would break the isolation of the copy
+            throw new IllegalArgumentException("Can not copy " + clazz.getName() + ", not immutable nor Cloneable");
+        }
+    }
+
+    private static final class CloneStrategy extends Strategy {
+
+        private final Method clone;
+
+        CloneStrategy(Method clone) {
+            this.clone = clone;
+        }
+
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            try {
+                Object copy = clone.invoke(object);
+                scratch.register(object, copy);
+                return copy;
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Can not clone " + object.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static final class CollectionStrategy extends Strategy {
+
+        private final Class<?> clazz;
+        private final Method comparator;
+        private final boolean ordered;
+        private final Constructor<?> sizedConstructor;
+        private final Constructor<?> defaultConstructor;
+        private final Method clone;
+        private final boolean blocking;
+
+        CollectionStrategy(Class<?> clazz) {
+            this.clazz = clazz;
+            this.comparator = findComparator(clazz);
+            this.ordered = comparator != null || SortedSet.class.isAssignableFrom(clazz);
+            this.blocking = BlockingQueue.class.isAssignableFrom(clazz);
+            boolean sized = SIZED_TYPES.contains(clazz) || HASHED_TYPES.contains(clazz)
+                    || BOUNDED_TYPES.contains(clazz);
+            // Ordered collections are only created with their comparator
+            if (ordered) {
+                this.sizedConstructor = sized ? findConstructor(clazz, int.class, Comparator.class) : null;
+                this.defaultConstructor = findConstructor(clazz, Comparator.class);
+            } else {
+                this.sizedConstructor = sized ? findConstructor(clazz, int.class) : null;
+                this.defaultConstructor = findConstructor(clazz);
+            }
+            this.clone = sizedConstructor == null && defaultConstructor == null ? findEmptyClone(clazz) : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object object, Scratch scratch) {
+            Collection<Object> collection = (Collection<Object>) object;
+            Collection<Object> copy = (Collection<Object>) newCollection(collection);
+            if (blocking && capacityOf((BlockingQueue<?>) copy) != capacityOf((BlockingQueue<?>) collection)) {
+                throw new IllegalArgumentException("Can not copy " + clazz.getName() + " keeping its capacity");
+            }
+            scratch.register(object, copy);
+            for (Object element : collection) {
+                copy.add(scratch.copy(element));
+            }
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object newCollection(Collection<?> collection) {
+            int size = collection.size();
+            if (ordered) {
+                Comparator<Object> comparatorOf = (Comparator<Object>) comparatorOf(collection);
+                if (sizedConstructor != null) return newInstance(sizedConstructor, Math.max(size, 1), comparatorOf);
+                if (defaultConstructor != null) return newInstance(defaultConstructor, comparatorOf);
+                if (clone != null) return emptyClone(clone, collection);
+
+                // Copied to a standard class with the same order
+                if (collection instanceof SortedSet) return new TreeSet<Object>(comparatorOf);
+                if (collection instanceof Queue) return new PriorityQueue<Object>(Math.max(size, 1), comparatorOf);
+                throw new IllegalArgumentException("Can not copy " + clazz.getName() + " keeping its comparator");
+            }
+            if (sizedConstructor != null) return newInstance(sizedConstructor, initialSize(collection));
+            if (defaultConstructor != null) return newInstance(defaultConstructor);
+            if (clone != null) return emptyClone(clone, collection);
+
+            // Classes that can not be created, e.g. unmodifiable views, are copied to a standard one
+            if (collection instanceof Set) return new LinkedHashSet<Object>(capacity(size));
+            return new ArrayList<Object>(size);
+        }
+
+        private int initialSize(Collection<?> collection) {
+            if (HASHED_TYPES.contains(clazz)) return capacity(collection.size());
+            if (BOUNDED_TYPES.contains(clazz)) return capacityOf((BlockingQueue<?>) collection);
+            return collection.size();
+        }
+
+        private Object comparatorOf(Collection<?> collection) {
+            // Sorted wrappers are not public classes, their comparator is read through the interface
+            if (collection instanceof SortedSet) return ((SortedSet<?>) collection).comparator();
+            try {
+                return comparator.invoke(collection);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Can not get the comparator of " + clazz.getName(), e);
+            }
+        }
+    }
+
+    private static final class MapStrategy extends Strategy {
+
+        private final Constructor<?> sizedConstructor;
+        private final Constructor<?> defaultConstructor;
+        private final Class<?> clazz;
+        private final Method clone;
+        private final boolean sorted;
+
+        MapStrategy(Class<?> clazz) {
+            this.clazz = clazz;
+            this.sorted = SortedMap.class.isAssignableFrom(clazz);
+            this.sizedConstructor = HASHED_TYPES.contains(clazz) ? findConstructor(clazz, int.class) : null;
+            this.defaultConstructor = sorted ? findConstructor(clazz, Comparator.class) : findConstructor(clazz);
+            // A linked map may be in access order, which is only kept by its clone
+            boolean linked = LinkedHashMap.class.isAssignableFrom(clazz);
+            this.clone = linked || (sizedConstructor == null && defaultConstructor == null) ? findEmptyClone(clazz)
+                    : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object object, Scratch scratch) {
+            Map<Object, Object> map = (Map<Object, Object>) object;
+            Map<Object, Object> copy = (Map<Object, Object>) newMap(map);
+            scratch.register(object, copy);
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                copy.put(scratch.copy(entry.getKey()), scratch.copy(entry.getValue()));
+            }
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object newMap(Map<?, ?> map) {
+            if (sorted) {
+                Comparator<?> comparator = ((SortedMap<?, ?>) map).comparator();
+                if (defaultConstructor != null) return newInstance(defaultConstructor, comparator);
+                return new TreeMap<Object, Object>((Comparator<Object>) comparator);
+            }
+            if (map instanceof Properties) return newProperties((Properties) map);
+            if (clone != null) return emptyClone(clone, map);
+            if (sizedConstructor != null) return newInstance(sizedConstructor, capacity(map.size()));
+            if (defaultConstructor != null) return newInstance(defaultConstructor);
+
+            return new LinkedHashMap<Object, Object>(capacity(map.size()));
+        }
+
+        private Object newProperties(Properties properties) {
+            // The defaults are not accessible, they are read through the property names
+            Properties defaults = new Properties();
+            for (String name : properties.stringPropertyNames()) {
+                if (!properties.containsKey(name)) defaults.setProperty(name, properties.getProperty(name));
+            }
+            if (clazz == Properties.class) return new Properties(defaults.isEmpty() ? null : defaults);
+            if (!defaults.isEmpty()) {
+                throw new IllegalArgumentException("Can not copy " + clazz.getName() + " keeping its defaults");
+            }
+            return defaultConstructor != null ? newInstance(defaultConstructor) : emptyClone(clone, properties);
+        }
+    }
+
+    /**
+     * Return the public clone method of a Cloneable collection or map, e.g. EnumSet, or null
+     */
+    private static Method findEmptyClone(Class<?> clazz) {
+        return Cloneable.class.isAssignableFrom(clazz) ? findPublicClone(clazz) : null;
+    }
+
+    /**
+     * Return an empty instance of the same class as the collection or map, cloning and clearing it
+     */
+    private static Object emptyClone(Method clone, Object object) {
+        try {
+            Object copy = clone.invoke(object);
+            if (copy instanceof Collection) ((Collection<?>) copy).clear();
+            else ((Map<?, ?>) copy).clear();
+            return copy;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Can not clone " + object.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Return the capacity of a blocking queue, Integer.MAX_VALUE if it is not bounded
+     */
+    private static int capacityOf(BlockingQueue<?> queue) {
+        return (int) Math.min((long) queue.size() + queue.remainingCapacity(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return the capacity of a hash table that holds the elements without resizing
+     */
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f) + 1;
+    }
+
+    private static final class BeanStrategy extends Strategy {
+
+        private final Class<?> clazz;
+        private final Constructor<?> constructor;
+        private final Field[] primitiveFields;
+        private final Field[] immutableFields;
+        private final Field[] referenceFields;
+
+        BeanStrategy(Class<?> clazz) {
+            this.clazz = clazz;
+            this.constructor = findConstructor(clazz);
+
+            List<Field> primitives = new ArrayList<Field>();
+            List<Field> immutables = new ArrayList<Field>();
+            List<Field> references = new ArrayList<Field>();
+            for (Field field : ReflectionUtils.getCachedFields(clazz)) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+
+                field.setAccessible(true);
+                if (field.getType().isPrimitive()) primitives.add(field);
+                else if (isImmutable(field.getType())) immutables.add(field);
+                else references.add(field);
+            }
+            this.primitiveFields = primitives.toArray(new Field[primitives.size()]);
+            this.immutableFields = immutables.toArray(new Field[immutables.size()]);
+            this.referenceFields = references.toArray(new Field[references.size()]);
+        }
+
+        @Override
+        Object copy(Object object, Scratch scratch) {
+            if (constructor == null) {
+                throw new IllegalArgumentException("Can not copy " + clazz.getName() + ", no default constructor");
+            }
+
+            Object copy = newInstance(constructor);
+            scratch.register(object, copy);
+            try {
+                for (Field field : primitiveFields) {
+                    copyPrimitive(field, object, copy);
+                }
+                for (Field field : immutableFields) {
+                    field.set(copy, field.get(object));
+                }
+                for (Field field : referenceFields) {
+                    field.set(copy, scratch.copy(field.get(object)));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            return copy;
+        }
+
+        private static void copyPrimitive(Field field, Object object, Object copy) throws IllegalAccessException {
+            Class<?> type = field.getType();
+            if (type == int.class) field.setInt(copy, field.getInt(object));
+            else if (type == long.class) field.setLong(copy, field.getLong(object));
+            else if (type == boolean.class) field.setBoolean(copy, field.getBoolean(object));
+            else if (type == double.class) field.setDouble(copy, field.getDouble(object));
+            else if (type == float.class) field.setFloat(copy, field.getFloat(object));
+            else if (type == char.class) field.setChar(copy, field.getChar(object));
+            else if (type == short.class) field.setShort(copy, field.getShort(object));
+            else field.setByte(copy, field.getByte(object));
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A dotted field path compiled once, e.g. "customer.address.zip" or "orders[0].items[2].name".
+ * Each field segment caches the field resolved for the last class it was read from, so evaluating
+ * the path again on objects of the same classes does not look up any field. Index segments read
+ * an element of an array or collection. A compiled path is thread-safe.
+ * 
+ * @author miguel
+ *
+ * @see {@link FieldPathSet}
+ */
+public final class FieldPath {
+
+    private final String path;
+    private final boolean nullSafe;
+    final Step[] steps;
+
+    private FieldPath(String path, boolean nullSafe, Step[] steps) {
+        this.path = path;
+        this.nullSafe = nullSafe;
+        this.steps = steps;
+    }
+
+    /**
+     * An convenience method, equivalent to {@link #compile(String, boolean)} with null-safe
+     * traversal
+     */
+    public static final FieldPath compile(final String path) {
+        return compile(path, true);
+    }
+
+    /**
+     * Compile a dotted field path. A segment can be followed by any number of indexes, e.g.
+     * "matrix[1][2]".
+     * 
+     * @param path
+     *            corresponding to the dotted field path
+     * @param nullSafe
+     *            if true a null value, or an index out of range, in the middle of the path returns
+     *            null, otherwise throws an exception
+     * @return the compiled path
+     * @throws IllegalArgumentException
+     *             if the path is not well formed
+     */
+    public static final FieldPath compile(final String path, final boolean nullSafe) {
+        if (path == null || path.length() == 0) throw new IllegalArgumentException("Empty field path");
+
+        List<Step> steps = new ArrayList<Step>();
+        for (String segment : path.split("\\.", -1)) {
+            int bracket = segment.indexOf('[');
+            String name = bracket < 0 ? segment : segment.substring(0, bracket);
+            // Only the first segment can start with an index, e.g. "[0].name" on a list
+            if (name.length() > 0) steps.add(new FieldStep(name));
+            else if (bracket != 0 || !steps.isEmpty()) throw malformed(path);
+
+            while (bracket >= 0) {
+                int end = segment.indexOf(']', bracket);
+                if (end < 0) throw malformed(path);
+                try {
+                    int index = Integer.parseInt(segment.substring(bracket + 1, end));
+                    if (index < 0) throw malformed(path);
+                    steps.add(new IndexStep(index));
+                } catch (NumberFormatException e) {
+                    throw malformed(path);
+                }
+                if (end + 1 < segment.length() && segment.charAt(end + 1) != '[') throw malformed(path);
+                bracket = end + 1 < segment.length() ? end + 1 : -1;
+            }
+        }
+        return new FieldPath(path, nullSafe, steps.toArray(new Step[steps.size()]));
+    }
+
+    private static IllegalArgumentException malformed(String path) {
+        return new IllegalArgumentException("Malformed field path: " + path);
+    }
+
+    /**
+     * Return the dotted field path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Return true if a null value in the middle of the path returns null, otherwise return false
+     */
+    public boolean isNullSafe() {
+        return nullSafe;
+    }
+
+    /**
+     * Return the value at the end of the path
+     * 
+     * @param root
+     *            where the path starts
+     * @return the value at the end of the path, or null if a value in the middle is null and the
+     *         path is null-safe
+     * @throws NullPointerException
+     *             if a value in the middle of the path is null and the path is not null-safe
+     * @throws IllegalArgumentException
+     *             if a field does not exist or a value can not be indexed
+     */
+    public Object getValue(final Object root) {
+        return getValue(root, 0, null);
+    }
+
+    /**
+     * Evaluate the steps starting from the value at the specified step. If the stack is not null
+     * the value reached after each step is stored on it.
+     */
+    Object getValue(final Object from, final int fromStep, final Object[] stack) {
+        Object value = from;
+        for (int i = fromStep; i < steps.length; i++) {
+            if (value == null) return nullValue(i);
+
+            value = steps[i].get(value, this);
+            if (stack != null) stack[i + 1] = value;
+        }
+        return value;
+    }
+
+    Object nullValue(int step) {
+        if (nullSafe) return null;
+        throw new NullPointerException("Null value at " + (step == 0 ? "the root" : "'" + subpath(step) + "'")
+                + " of field path " + path);
+    }
+
+    private String subpath(int step) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < step; i++) {
+            if (steps[i] instanceof FieldStep && sb.length() > 0) sb.append('.');
+            sb.append(steps[i]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * A step of the path, from a value to the next one
+     */
+    abstract static class Step {
+
+        abstract Object get(Object value, FieldPath path);
+
+        abstract boolean isSame(Step step);
+    }
+
+    /**
+     * A step that reads a field of the value
+     */
+    private static final class FieldStep extends Step {
+
+        private final String name;
+        // The field resolved for the last class, replaced when the class changes
+        private volatile ResolvedField resolved;
+
+        FieldStep(String name) {
+            this.name = name;
+        }
+
+        @Override
+        Object get(Object value, FieldPath path) {
+            Class<?> clazz = value.getClass();
+            ResolvedField resolved = this.resolved;
+            if (resolved == null || resolved.clazz != clazz) {
+                resolved = new ResolvedField(clazz, resolve(clazz, path));
+                this.resolved = resolved;
+            }
+
+            try {
+                return resolved.field.get(value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Field resolve(Class<?> clazz, FieldPath path) {
+            Field field = ReflectionUtils.getFieldByName(clazz, name);
+            if (field == null) {
+                throw new IllegalArgumentException("Field '" + name + "' not found in " + clazz.getName()
+                        + " for field path " + path);
+            }
+            field.setAccessible(true);
+            return field;
+        }
+
+        @Override
+        boolean isSame(Step step) {
+            return step instanceof FieldStep && name.equals(((FieldStep) step).name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class ResolvedField {
+
+        final Class<?> clazz;
+        final Field field;
+
+        ResolvedField(Class<?> clazz, Field field) {
+            this.clazz = clazz;
+            this.field = field;
+        }
+    }
+
+    /**
+     * A step that reads an element of an array or collection
+     */
+    private static final class IndexStep extends Step {
+
+        private final int index;
+
+        IndexStep(int index) {
+            this.index = index;
+        }
+
+        @Override
+        Object get(Object value, FieldPath path) {
+            if (ReflectionUtils.isFieldIsArray(value)) {
+                if (index < Array.getLength(value)) return Array.get(value, index);
+                return outOfRange(Array.getLength(value), path);
+            }
+            if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                if (index >= collection.size()) return outOfRange(collection.size(), path);
+                if (collection instanceof List) return ((List<?>) collection).get(index);
+
+                // Not indexed collection, walk it in iteration order
+                Iterator<?> iterator = collection.iterator();
+                for (int i = 0; i < index; i++) {
+                    iterator.next();
+                }
+                return iterator.next();
+            }
+            throw new IllegalArgumentException(value.getClass().getName() + " is not an array or collection for "
+                    + "field path " + path);
+        }
+
+        private Object outOfRange(int size, FieldPath path) {
+            if (path.isNullSafe()) return null;
+            throw new IndexOutOfBoundsException("Index " + index + " out of range of size " + size + " for field path "
+                    + path);
+        }
+
+        @Override
+        boolean isSame(Step step) {
+            return step instanceof IndexStep && index == ((IndexStep) step).index;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + index + "]";
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A set of field paths evaluated together against the same object. The paths are sorted when the
+ * set is compiled, so paths with a common prefix, e.g. "customer.address.zip" and
+ * "customer.address.city", read the common fields just once. A compiled set is thread-safe.
+ * 
+ * @author miguel
+ *
+ * @see {@link FieldPath}
+ */
+public final class FieldPathSet {
+
+    private final FieldPath[] paths;
+    // Evaluation order, so paths with a common prefix are evaluated one after the other
+    private final int[] order;
+    // Number of steps shared with the previous path in evaluation order
+    private final int[] shared;
+    private final int maxSteps;
+
+    private FieldPathSet(FieldPath[] paths) {
+        this.paths = paths;
+
+        Integer[] sorted = new Integer[paths.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return FieldPathSet.this.paths[a].getPath().compareTo(FieldPathSet.this.paths[b].getPath());
+            }
+        });
+
+        this.order = new int[paths.length];
+        this.shared = new int[paths.length];
+        int max = 0;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = sorted[i];
+            max = Math.max(max, paths[order[i]].steps.length);
+            if (i > 0) shared[i] = sharedSteps(paths[order[i - 1]], paths[order[i]]);
+        }
+        this.maxSteps = max;
+    }
+
+    /**
+     * An convenience method, equivalent to {@link #compile(boolean, String...)} with null-safe
+     * traversal
+     */
+    public static final FieldPathSet compile(final String... paths) {
+        return compile(true, paths);
+    }
+
+    /**
+     * Compile a set of dotted field paths
+     * 
+     * @param nullSafe
+     *            see {@link FieldPath#compile(String, boolean)}
+     * @param paths
+     *            corresponding to the dotted field paths
+     * @return the compiled set of paths
+     * @throws IllegalArgumentException
+     *             if a path is not well formed
+     */
+    public static final FieldPathSet compile(final boolean nullSafe, final String... paths) {
+        FieldPath[] compiled = new FieldPath[paths != null ? paths.length : 0];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = FieldPath.compile(paths[i], nullSafe);
+        }
+        return new FieldPathSet(compiled);
+    }
+
+    private static int sharedSteps(FieldPath a, FieldPath b) {
+        int length = Math.min(a.steps.length, b.steps.length);
+        int i = 0;
+        while (i < length && a.steps[i].isSame(b.steps[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Return the number of paths of the set
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Return the path at the specified position, in the order they were compiled
+     */
+    public FieldPath getPath(int index) {
+        return paths[index];
+    }
+
+    /**
+     * Return the values at the end of each path, in the order the paths were compiled
+     * 
+     * @param root
+     *            where the paths start
+     * @return an array with a value for each path
+     * @see {@link #getValues(Object, Object[])}
+     */
+    public Object[] getValues(final Object root) {
+        Object[] values = new Object[paths.length];
+        getValues(root, values);
+        return values;
+    }
+
+    /**
+     * Store the values at the end of each path in the array, in the order the paths were compiled
+     * 
+     * @param root
+     *            where the paths start
+     * @param values
+     *            where the values are stored, its length must be at least the size of the set
+     * @see {@link FieldPath#getValue(Object)}
+     */
+    public void getValues(final Object root, final Object[] values) {
+        if (values.length < paths.length) {
+            throw new IllegalArgumentException("Values array too small: " + values.length + " < " + paths.length);
+        }
+
+        // The values reached after each step of the previous path
+        Object[] stack = new Object[maxSteps + 1];
+        stack[0] = root;
+        // Number of steps of the previous path that stored a value on the stack
+        int reached = 0;
+        for (int i = 0; i < order.length; i++) {
+            FieldPath path = paths[order[i]];
+            int from = Math.min(shared[i], reached);
+            if (from == path.steps.length) {
+                values[order[i]] = stack[from];
+            } else if (stack[from] == null) {
+                values[order[i]] = path.nullValue(from);
+            } else {
+                values[order[i]] = path.getValue(stack[from], from, stack);
+            }
+            reached = lastReached(stack, from, path.steps.length);
+        }
+    }
+
+    private static int lastReached(Object[] stack, int from, int steps) {
+        // Values after a null value were not evaluated
+        int reached = from;
+        while (reached < steps && stack[reached] != null) {
+            reached++;
+        }
+        return reached;
+    }
+
+}
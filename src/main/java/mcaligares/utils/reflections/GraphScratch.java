@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.util.IdentityHashMap;
+
+/**
+ * The structures of a walk over an object graph, reused by the next walk of the same thread. A walk
+ * started while another one is in progress in the same thread, e.g. from a constructor or a
+ * hashCode called while walking, gets its own structures.
+ * 
+ * @author miguel
+ *
+ * @param <S>
+ *            type of the scratch
+ */
+abstract class GraphScratch<S extends GraphScratch<S>> {
+
+    // Above this size a structure is discarded instead of cleared, so it does not retain memory
+    private static final int MAX_SIZE = 1024;
+
+    private boolean inUse;
+
+    /**
+     * Return a new scratch, used when the scratch of the thread is in use
+     */
+    abstract S newScratch();
+
+    /**
+     * Clear the structures, called when the walk ends
+     */
+    abstract void clear();
+
+    /**
+     * Return the scratch of the current thread, or a new one if it is in use. The caller must
+     * {@link #release()} it.
+     */
+    static <S extends GraphScratch<S>> S acquire(ThreadLocal<S> scratch) {
+        S current = scratch.get();
+        GraphScratch<S> state = current;
+        if (state.inUse) state = current = current.newScratch();
+        state.inUse = true;
+        return current;
+    }
+
+    final void release() {
+        clear();
+        inUse = false;
+    }
+
+    /**
+     * Return the map cleared, or a new map if it grew above the size retained between walks
+     */
+    static <K, V> IdentityHashMap<K, V> reset(IdentityHashMap<K, V> map) {
+        if (map.size() > MAX_SIZE) return new IdentityHashMap<K, V>();
+        map.clear();
+        return map;
+    }
+
+}
@@ -19,7 +19,11 @@ package mcaligares.utils.reflections;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A set of useful methods to work with reflection and annotation
@@ -29,6 +33,13 @@ import java.util.List;
  */
 public final class ReflectionUtils {
 
+    private static final ClassCache<ClassFields> CLASS_FIELDS = new ClassCache<ClassFields>() {
+        @Override
+        protected ClassFields create(Class<?> clazz) {
+            return new ClassFields(clazz);
+        }
+    };
+
     private ReflectionUtils() {
     }
 
@@ -94,7 +105,7 @@ public final class ReflectionUtils {
         List<Field> fieldsSuperclass = new ArrayList<Field>();
 
         // Recursive loop to get field in superclass
-        while (superClass != Object.class) {
+        while (superClass != null && superClass != Object.class) {
             List<Field> fields = new ArrayList<Field>();
             for (Field field : superClass.getDeclaredFields()) {
                 fields.add(field);
@@ -126,13 +137,11 @@ public final class ReflectionUtils {
      */
     public static final <T extends Annotation> List<Field> getFieldsWithAnyAnnotations(Class<?> clazz,
             Class... annotationClasses) {
-        // Get fields of class
-        List<Field> fields = getFields(clazz);
-        if (fields == null || fields.isEmpty()) return null;
+        if (clazz == null) return null;
 
         // Checking for fields with annotations
         List<Field> fieldsWithAnnotation = new ArrayList<Field>();
-        for (Field field : fields) {
+        for (Field field : classFields(clazz).fields) {
             if (hasAnyAnnotations(field, annotationClasses)) {
                 fieldsWithAnnotation.add(field);
             }
@@ -146,13 +155,11 @@ public final class ReflectionUtils {
      */
     public static final <T extends Annotation> List<Field> getFieldsWithAllAnnotations(Class<?> clazz,
             Class... annotationClasses) {
-        // Get fields of class
-        List<Field> fields = getFields(clazz);
-        if (fields == null || fields.isEmpty()) return null;
+        if (clazz == null) return null;
 
         // Checking for fields with annotations
         List<Field> fieldsWithAnnotation = new ArrayList<Field>();
-        for (Field field : fields) {
+        for (Field field : classFields(clazz).fields) {
             if (hasAllAnnotations(field, annotationClasses)) {
                 fieldsWithAnnotation.add(field);
             }
@@ -161,6 +168,150 @@ public final class ReflectionUtils {
         return fieldsWithAnnotation.isEmpty() ? null : fieldsWithAnnotation;
     }
 
+    /**
+     * Return a read-only list of Field objects reflecting all the fields declared by the Class
+     * object, includes inherited fields, in the same order as {@link #getFields(Class)}. The list is
+     * cached and shared between threads, so calling this method again does not allocate. This
+     * method returns an empty list if the class is null or declares no fields.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @return a read-only list of field objects, never null
+     * @see {@link #getFields(Class)}
+     */
+    public static final List<Field> getCachedFields(final Class<?> clazz) {
+        return clazz != null ? classFields(clazz).fieldsView : Collections.<Field> emptyList();
+    }
+
+    /**
+     * Return a read-only list of Field objects reflecting all the fields declared by the Class
+     * object, not includes inherited fields. The list is cached and shared between threads. This
+     * method returns an empty list if the class is null or declares no fields.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @return a read-only list of field objects, never null
+     * @see {@link #getFieldsInClass(Class)}
+     */
+    public static final List<Field> getCachedFieldsInClass(final Class<?> clazz) {
+        return clazz != null ? classFields(clazz).declaredFieldsView : Collections.<Field> emptyList();
+    }
+
+    /**
+     * Return a read-only list of Field objects reflecting any fields that has the annotation class,
+     * includes inherited fields. The list is cached by annotation class and shared between threads.
+     * This method returns an empty list if the class is null or no field has the annotation.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @param annotationClass
+     * @return a read-only list of field objects, never null
+     * @see {@link #getFieldsWithAnnotations(Class, Class...)}
+     */
+    public static final List<Field> getCachedFieldsWithAnnotation(final Class<?> clazz,
+            final Class<? extends Annotation> annotationClass) {
+        if (clazz == null || annotationClass == null) return Collections.<Field> emptyList();
+
+        ClassFields classFields = classFields(clazz);
+        List<Field> fields = classFields.annotatedFields.get(annotationClass);
+        if (fields == null) {
+            List<Field> fieldsWithAnnotation = new ArrayList<Field>();
+            for (Field field : classFields.fields) {
+                if (field.isAnnotationPresent(annotationClass)) fieldsWithAnnotation.add(field);
+            }
+            fields = unmodifiableList(fieldsWithAnnotation.toArray(new Field[fieldsWithAnnotation.size()]));
+            // A pinned class must not keep the loader of the annotation alive
+            if (ClassCache.isPinned(clazz) && !ClassCache.isPinned(annotationClass)) return fields;
+            List<Field> existing = classFields.annotatedFields.putIfAbsent(annotationClass, fields);
+            if (existing != null) fields = existing;
+        }
+        return fields;
+    }
+
+    /**
+     * Add to the buffer all the fields declared by the Class object, includes inherited fields.
+     * The buffer is not cleared, so a caller can reuse the same buffer without allocation.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @param buffer
+     *            where the fields are added
+     * @return the number of fields added to the buffer
+     * @see {@link #getCachedFields(Class)}
+     */
+    public static final int getFields(final Class<?> clazz, final List<? super Field> buffer) {
+        if (clazz == null) return 0;
+        return addAll(classFields(clazz).fields, buffer);
+    }
+
+    /**
+     * Add to the buffer all the fields declared by the Class object, not includes inherited
+     * fields. The buffer is not cleared, so a caller can reuse the same buffer without allocation.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @param buffer
+     *            where the fields are added
+     * @return the number of fields added to the buffer
+     * @see {@link #getCachedFieldsInClass(Class)}
+     */
+    public static final int getFieldsInClass(final Class<?> clazz, final List<? super Field> buffer) {
+        if (clazz == null) return 0;
+        return addAll(classFields(clazz).declaredFields, buffer);
+    }
+
+    /**
+     * Add to the buffer any fields that has at least one annotation class, includes inherited
+     * fields. The buffer is not cleared, so a caller can reuse the same buffer without allocation.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @param buffer
+     *            where the fields are added
+     * @param annotationClasses
+     * @return the number of fields added to the buffer
+     * @see {@link #getFieldsWithAnyAnnotations(Class, Class...)}
+     */
+    public static final int getFieldsWithAnyAnnotations(final Class<?> clazz, final List<? super Field> buffer,
+            final Class... annotationClasses) {
+        if (clazz == null) return 0;
+
+        int count = 0;
+        for (Field field : classFields(clazz).fields) {
+            if (hasAnyAnnotations(field, annotationClasses)) {
+                buffer.add(field);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add to the buffer any fields that has all the annotation classes, includes inherited fields.
+     * The buffer is not cleared, so a caller can reuse the same buffer without allocation.
+     * 
+     * @param clazz
+     *            where will try to get the fields
+     * @param buffer
+     *            where the fields are added
+     * @param annotationClasses
+     * @return the number of fields added to the buffer
+     * @see {@link #getFieldsWithAllAnnotations(Class, Class...)}
+     */
+    public static final int getFieldsWithAllAnnotations(final Class<?> clazz, final List<? super Field> buffer,
+            final Class... annotationClasses) {
+        if (clazz == null) return 0;
+
+        int count = 0;
+        for (Field field : classFields(clazz).fields) {
+            if (hasAllAnnotations(field, annotationClasses)) {
+                buffer.add(field);
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * An convenience method, equivalent to {@link #getFieldByName(Class, String)}
      */
@@ -183,12 +334,10 @@ public final class ReflectionUtils {
         // Checking for filed name
         if (fieldName == null || fieldName.length() == 0) return null;
 
-        // Get fields list of class
-        List<Field> fields = getFields(clazz);
-        if (fields == null || fields.isEmpty()) return null;
+        if (clazz == null) return null;
 
         // Search by field name
-        for (Field field : fields) {
+        for (Field field : classFields(clazz).fields) {
             if (fieldName.equals(field.getName())) return field;
         }
 
@@ -338,4 +487,57 @@ public final class ReflectionUtils {
         return object != null && object.getClass().getComponentType() != null;
     }
 
+    /**
+     * Return true if the class belongs to the JDK, whose fields are usually not accessible
+     */
+    static boolean isJdkClass(Class<?> clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+                || name.startsWith("com.sun.") || name.startsWith("jdk.");
+    }
+
+    private static int addAll(Field[] fields, List<? super Field> buffer) {
+        for (Field field : fields) {
+            buffer.add(field);
+        }
+        return fields.length;
+    }
+
+    private static List<Field> unmodifiableList(Field[] fields) {
+        if (fields.length == 0) return Collections.<Field> emptyList();
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    private static ClassFields classFields(Class<?> clazz) {
+        return CLASS_FIELDS.get(clazz);
+    }
+
+    /**
+     * Fields of a class, resolved once and shared between threads. The arrays are never exposed,
+     * callers get read-only views of them.
+     */
+    private static final class ClassFields {
+
+        final Field[] fields;
+        final Field[] declaredFields;
+        final List<Field> fieldsView;
+        final List<Field> declaredFieldsView;
+        final ConcurrentMap<Class<? extends Annotation>, List<Field>> annotatedFields =
+                new ConcurrentHashMap<Class<? extends Annotation>, List<Field>>();
+
+        ClassFields(Class<?> clazz) {
+            this.declaredFields = clazz.getDeclaredFields();
+
+            // Fields in class first, then fields in superclass
+            List<Field> fieldsSuperclass = getFieldsInSuperclass(clazz);
+            this.fields = Arrays.copyOf(declaredFields, declaredFields.length + fieldsSuperclass.size());
+            for (int i = 0; i < fieldsSuperclass.size(); i++) {
+                fields[declaredFields.length + i] = fieldsSuperclass.get(i);
+            }
+
+            this.fieldsView = unmodifiableList(fields);
+            this.declaredFieldsView = unmodifiableList(declaredFields);
+        }
+    }
+
 }
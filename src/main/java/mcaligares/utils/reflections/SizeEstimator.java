@@ -0,0 +1,627 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Estimate the memory used by objects. The shallow size of each class is computed once from its
+ * field layout: object header, primitive widths, references and alignment. Walking an object graph
+ * only reads the reference fields, and the elements of arrays, collections and maps. The internal
+ * structures of JDK collections and maps are estimated. The fields of other JDK classes are read
+ * when they can be made accessible; when the JVM does not allow it, the content of common holders
+ * (StringBuilder, BigInteger, BigDecimal, AtomicReference, AtomicReferenceArray, Reference and
+ * Optional) is read through their public methods, and any other JDK class counts its shallow size.
+ * <p/>
+ * The sizes are estimates, the real layout depends on the JVM.
+ * 
+ * @author miguel
+ *
+ */
+public final class SizeEstimator {
+
+    private static final SizeEstimator DEFAULT = createDefault();
+
+    // Strings store chars, or bytes when the JVM uses compact strings
+    private static final Class<?> STRING_VALUE_TYPE = stringValueType();
+
+    // Optional.orElse, the class may not exist in the running JDK
+    private static final Method OPTIONAL_OR_ELSE = optionalOrElse();
+
+    // How the elements of a container are stored
+    private static final int NOT_CONTAINER = 0;
+    private static final int ARRAY_BACKED = 1;
+    private static final int LINKED = 2;
+    private static final int HASHED = 3;
+    private static final int TREE = 4;
+
+    private final int headerSize;
+    private final int referenceSize;
+    private final int alignment;
+    private final int arrayHeaderSize;
+    private final ClassCache<ClassLayout> layouts = new ClassCache<ClassLayout>() {
+        @Override
+        protected ClassLayout create(Class<?> clazz) {
+            return new ClassLayout(clazz);
+        }
+    };
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Create an estimator for a specific JVM layout, e.g. (12, 4, 8) for a 64 bits JVM with
+     * compressed references
+     * 
+     * @param headerSize
+     *            corresponding to the bytes of an object header
+     * @param referenceSize
+     *            corresponding to the bytes of a reference
+     * @param alignment
+     *            corresponding to the bytes the size of an object is rounded up to
+     */
+    public SizeEstimator(int headerSize, int referenceSize, int alignment) {
+        if (headerSize <= 0 || referenceSize <= 0 || alignment <= 0) {
+            throw new IllegalArgumentException("Sizes must be positive");
+        }
+        this.headerSize = headerSize;
+        this.referenceSize = referenceSize;
+        this.alignment = alignment;
+        // The array length follows the header, the elements start aligned to a reference
+        this.arrayHeaderSize = (int) align(headerSize + 4, referenceSize);
+    }
+
+    /**
+     * Return the estimator for the layout of the current JVM. A 64 bits JVM is assumed to use
+     * compressed references if the maximum heap is lower than 32 GB.
+     */
+    public static SizeEstimator getDefault() {
+        return DEFAULT;
+    }
+
+    private static SizeEstimator createDefault() {
+        if ("32".equals(System.getProperty("sun.arch.data.model"))) return new SizeEstimator(8, 4, 8);
+        boolean compressed = Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+        return compressed ? new SizeEstimator(12, 4, 8) : new SizeEstimator(16, 8, 8);
+    }
+
+    /**
+     * Return the shallow size of an instance of the class, not includes referenced objects. For
+     * arrays use {@link #shallowSizeOf(Object)}, the size depends on the length.
+     * 
+     * @param clazz
+     * @return the shallow size in bytes
+     */
+    public long shallowSize(final Class<?> clazz) {
+        if (clazz == null) return 0;
+        if (clazz.isArray()) throw new IllegalArgumentException("The size of an array depends on its length");
+        return layout(clazz).shallowSize;
+    }
+
+    /**
+     * Return the shallow size of the object, not includes referenced objects
+     * 
+     * @param object
+     * @return the shallow size in bytes, or 0 if the object is null
+     */
+    public long shallowSizeOf(final Object object) {
+        if (object == null) return 0;
+        if (ReflectionUtils.isFieldIsArray(object)) {
+            return arraySize(object.getClass().getComponentType(), Array.getLength(object));
+        }
+        return layout(object.getClass()).shallowSize;
+    }
+
+    /**
+     * Return the size of the object and all the objects reachable from it. Objects referenced more
+     * than once are counted once.
+     * 
+     * @param object
+     * @return the size in bytes, or 0 if the object is null
+     */
+    public long sizeOf(final Object object) {
+        return sizeOf(object, 0);
+    }
+
+    /**
+     * Return the size of the object and all the objects reachable from it, sampling large
+     * containers. If an array, collection or map has more elements than the sample size only that
+     * many elements are walked. The size of the objects reached from just one sampled element is
+     * extrapolated to all the elements, the objects shared with other elements or with the rest
+     * of the graph are counted once. The containers reached from a sampled element are walked
+     * completely.
+     * <p/>
+     * Every element of a sampled container is still marked as visited, so an element held by two
+     * containers, e.g. a list and a sublist of it, is only counted by the first one. The
+     * extrapolation is only over the elements that were not counted before.
+     * 
+     * @param object
+     * @param sampleSize
+     *            corresponding to the maximum number of elements walked by container, or 0 to walk
+     *            all the elements
+     * @return the estimated size in bytes, or 0 if the object is null
+     */
+    public long sizeOf(final Object object, final int sampleSize) {
+        if (object == null) return 0;
+        if (sampleSize < 0) throw new IllegalArgumentException("sampleSize must not be negative: " + sampleSize);
+
+        Scratch current = GraphScratch.acquire(scratch);
+        try {
+            long size = walk(object, sampleSize, current);
+            for (Sampling sampling : current.samplings) {
+                size += sampling.estimate(current.owners);
+            }
+            return size;
+        } finally {
+            current.release();
+        }
+    }
+
+    private long walk(Object root, int sampleSize, Scratch scratch) {
+        long size = 0;
+        push(root, scratch);
+        while (!scratch.stack.isEmpty()) {
+            Object object = scratch.stack.remove(scratch.stack.size() - 1);
+            size += visit(object, sampleSize, scratch, null);
+        }
+        return size;
+    }
+
+    private void push(Object object, Scratch scratch) {
+        if (object == null) return;
+        if (scratch.visited.put(object, object) == null) {
+            scratch.stack.add(object);
+            return;
+        }
+
+        // Reached again through a path that is not sampled, it is counted once. A sampled element
+        // is one of the elements extrapolated, wherever else it is referenced from.
+        Owner owner = scratch.owners.get(object);
+        if (owner != null && !owner.shared && !owner.root) markShared(object, scratch);
+    }
+
+    /**
+     * Return the size of the object. The objects it references are added to the sink, or pushed
+     * to the stack if the sink is null.
+     */
+    private long visit(Object object, int sampleSize, Scratch scratch, List<Object> sink) {
+        Class<?> clazz = object.getClass();
+
+        // Arrays
+        if (ReflectionUtils.isFieldIsArray(object)) {
+            int length = Array.getLength(object);
+            long size = arraySize(clazz.getComponentType(), length);
+            if (!clazz.getComponentType().isPrimitive()) {
+                visitElements(Arrays.asList((Object[]) object), length, sampleSize, scratch, sink);
+            }
+            return size;
+        }
+
+        ClassLayout layout = layout(clazz);
+        long size = layout.shallowSize;
+
+        // Collections and maps
+        if (layout.containerKind != NOT_CONTAINER) {
+            int count;
+            if (object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                count = map.size();
+                visitElements(map.keySet(), count, sampleSize, scratch, sink);
+                visitElements(map.values(), count, sampleSize, scratch, sink);
+            } else {
+                Collection<?> collection = (Collection<?>) object;
+                count = collection.size();
+                visitElements(collection, count, sampleSize, scratch, sink);
+            }
+            return size + containerSize(layout.containerKind, count);
+        }
+
+        // Strings, the characters are not in a field that can be read
+        if (object instanceof String) return size + stringValueSize((String) object);
+
+        // Beans
+        try {
+            for (Field field : layout.referenceFields) {
+                emit(field.get(object), scratch, sink);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        if (layout.closed) size += contentSize(object, sampleSize, scratch, sink);
+        return size;
+    }
+
+    /**
+     * Return the size of the content of a JDK holder whose fields can not be read, read through
+     * its public methods. The objects it references are emitted.
+     */
+    private long contentSize(Object object, int sampleSize, Scratch scratch, List<Object> sink) {
+        if (object instanceof StringBuilder || object instanceof StringBuffer) {
+            CharSequence chars = (CharSequence) object;
+            int capacity = object instanceof StringBuilder ? ((StringBuilder) object).capacity()
+                    : ((StringBuffer) object).capacity();
+            return charsSize(chars, capacity);
+        }
+        if (object instanceof BigInteger) return magnitudeSize((BigInteger) object);
+        if (object instanceof BigDecimal) {
+            // The unscaled value is only kept in a BigInteger when it does not fit in a long
+            BigInteger unscaled = ((BigDecimal) object).unscaledValue();
+            return unscaled.bitLength() < 64 ? 0 : layout(BigInteger.class).shallowSize + magnitudeSize(unscaled);
+        }
+        if (object instanceof AtomicReference) {
+            emit(((AtomicReference<?>) object).get(), scratch, sink);
+            return 0;
+        }
+        if (object instanceof Reference) {
+            emit(((Reference<?>) object).get(), scratch, sink);
+            return 0;
+        }
+        if (object instanceof AtomicReferenceArray) {
+            AtomicReferenceArray<?> array = (AtomicReferenceArray<?>) object;
+            List<Object> elements = new ArrayList<Object>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                elements.add(array.get(i));
+            }
+            visitElements(elements, elements.size(), sampleSize, scratch, sink);
+            return arraySize(Object.class, elements.size());
+        }
+        if (OPTIONAL_OR_ELSE != null && OPTIONAL_OR_ELSE.getDeclaringClass() == object.getClass()) {
+            try {
+                emit(OPTIONAL_OR_ELSE.invoke(object, (Object) null), scratch, sink);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return 0;
+    }
+
+    private long magnitudeSize(BigInteger value) {
+        return arraySize(int.class, (value.abs().bitLength() + 31) / 32);
+    }
+
+    private void emit(Object object, Scratch scratch, List<Object> sink) {
+        if (sink != null) sink.add(object);
+        else push(object, scratch);
+    }
+
+    /**
+     * Emit the elements, or walk a sample of them whose size is extrapolated when the walk ends
+     */
+    private void visitElements(Collection<?> elements, int count, int sampleSize, Scratch scratch,
+            List<Object> sink) {
+        if (sampleSize == 0 || count <= sampleSize) {
+            for (Object element : elements) {
+                emit(element, scratch, sink);
+            }
+            return;
+        }
+
+        // The elements counted by another container, or twice in this one, are not extrapolated
+        List<Object> claimed = scratch.claimed;
+        for (Object element : elements) {
+            if (element == null) continue;
+            if (scratch.visited.put(element, element) == null) claimed.add(element);
+            else push(element, scratch);
+        }
+        if (claimed.size() <= sampleSize) {
+            scratch.stack.addAll(claimed);
+            claimed.clear();
+            return;
+        }
+
+        // Walk elements evenly spaced
+        Sampling sampling = new Sampling(claimed.size());
+        scratch.samplings.add(sampling);
+        for (int i = 0; i < sampleSize; i++) {
+            sampleElement(claimed.get((int) ((long) i * claimed.size() / sampleSize)), sampling, scratch);
+        }
+        claimed.clear();
+    }
+
+    /**
+     * Walk the objects reached from a sampled element, recording the sample that reached each one.
+     * The element is already marked as visited.
+     */
+    private void sampleElement(Object element, Sampling sampling, Scratch scratch) {
+        int sample = sampling.roots.size();
+        sampling.roots.add(element);
+        List<Object> pending = scratch.pending;
+        own(element, sampling, sample, true, scratch);
+        while (!pending.isEmpty()) {
+            Object object = pending.remove(pending.size() - 1);
+            if (object == null) continue;
+
+            Owner owner = scratch.owners.get(object);
+            if (owner != null) {
+                // Reached from another sample, it is counted once
+                if (!owner.shared && (owner.sampling != sampling || owner.sample != sample)) {
+                    markShared(object, scratch);
+                }
+                continue;
+            }
+            // Already counted through a path that is not sampled, or an element of a container
+            if (scratch.visited.put(object, object) != null) continue;
+
+            own(object, sampling, sample, false, scratch);
+        }
+    }
+
+    private void own(Object object, Sampling sampling, int sample, boolean root, Scratch scratch) {
+        long size = visit(object, 0, scratch, scratch.pending);
+        scratch.owners.put(object, new Owner(sampling, sample, root, size));
+        sampling.privateSize += size;
+    }
+
+    /**
+     * Count once, not extrapolated, the object and the sampled objects reached from it
+     */
+    private void markShared(Object object, Scratch scratch) {
+        List<Object> marking = scratch.marking;
+        marking.add(object);
+        while (!marking.isEmpty()) {
+            Object current = marking.remove(marking.size() - 1);
+            Owner owner = current != null ? scratch.owners.get(current) : null;
+            if (owner == null || owner.shared) continue;
+
+            owner.shared = true;
+            owner.sampling.privateSize -= owner.size;
+            owner.sampling.sharedSize += owner.size;
+            visit(current, 0, scratch, marking);
+        }
+    }
+
+    private long containerSize(int containerKind, int count) {
+        switch (containerKind) {
+        case LINKED:
+            // A node with the element, next and previous
+            return count * align(headerSize + 3 * referenceSize);
+        case HASHED:
+            // A table of buckets, and a node with the hash, key, value and next
+            int capacity = Integer.highestOneBit(Math.max((int) (count / 0.75f), 1) * 2 - 1);
+            return arraySize(Object.class, capacity) + count * align(headerSize + 4 + 3 * referenceSize);
+        case TREE:
+            // A node with the key, value, left, right, parent and color
+            return count * align(headerSize + 5 * referenceSize + 1);
+        default:
+            // An array of references
+            return arraySize(Object.class, count);
+        }
+    }
+
+    private long stringValueSize(String string) {
+        return charsSize(string, string.length());
+    }
+
+    /**
+     * Return the size of the array that stores the chars, with room for capacity chars
+     */
+    private long charsSize(CharSequence chars, int capacity) {
+        if (STRING_VALUE_TYPE != byte.class) return arraySize(STRING_VALUE_TYPE, capacity);
+
+        // Compact strings use a byte per char, unless a char does not fit in a byte
+        for (int i = 0; i < chars.length(); i++) {
+            if (chars.charAt(i) > 0xFF) return arraySize(byte.class, 2 * capacity);
+        }
+        return arraySize(byte.class, capacity);
+    }
+
+    private static Class<?> stringValueType() {
+        try {
+            return String.class.getDeclaredField("value").getType().getComponentType();
+        } catch (Exception e) {
+            return char.class;
+        }
+    }
+
+    private static Method optionalOrElse() {
+        try {
+            return Class.forName("java.util.Optional").getMethod("orElse", Object.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private long arraySize(Class<?> componentType, int length) {
+        return align(arrayHeaderSize + (long) length * fieldSize(componentType));
+    }
+
+    private int fieldSize(Class<?> type) {
+        if (!type.isPrimitive()) return referenceSize;
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private long align(long size) {
+        return align(size, alignment);
+    }
+
+    private static long align(long size, int alignment) {
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    private ClassLayout layout(Class<?> clazz) {
+        return layouts.get(clazz);
+    }
+
+    private static int containerKind(Class<?> clazz) {
+        if (!Collection.class.isAssignableFrom(clazz) && !Map.class.isAssignableFrom(clazz)) return NOT_CONTAINER;
+        if (SortedMap.class.isAssignableFrom(clazz) || SortedSet.class.isAssignableFrom(clazz)) return TREE;
+        if (HashMap.class.isAssignableFrom(clazz) || HashSet.class.isAssignableFrom(clazz)
+                || Hashtable.class.isAssignableFrom(clazz)
+                || ConcurrentHashMap.class.isAssignableFrom(clazz)) return HASHED;
+        if (List.class.isAssignableFrom(clazz) && !RandomAccess.class.isAssignableFrom(clazz)) return LINKED;
+        return ARRAY_BACKED;
+    }
+
+    /**
+     * The layout of a class, computed once
+     */
+    private final class ClassLayout {
+
+        final long shallowSize;
+        final Field[] referenceFields;
+        final int containerKind;
+        // A JDK field could not be made accessible
+        final boolean closed;
+
+        ClassLayout(Class<?> clazz) {
+            this.containerKind = containerKind(clazz);
+            // The internal structures of containers and strings are estimated, runtime classes are
+            // not walked
+            boolean estimated = containerKind != NOT_CONTAINER || clazz == String.class
+                    || clazz == Class.class || ClassLoader.class.isAssignableFrom(clazz)
+                    || Thread.class.isAssignableFrom(clazz);
+
+            long fieldsSize = 0;
+            boolean closed = false;
+            List<Field> references = new ArrayList<Field>();
+            for (Field field : ReflectionUtils.getCachedFields(clazz)) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+
+                fieldsSize += fieldSize(field.getType());
+                if (field.getType().isPrimitive()) continue;
+                if (!ReflectionUtils.isJdkClass(field.getDeclaringClass())) {
+                    field.setAccessible(true);
+                    references.add(field);
+                } else if (!estimated) {
+                    try {
+                        field.setAccessible(true);
+                        references.add(field);
+                    } catch (RuntimeException e) {
+                        closed = true;
+                    }
+                }
+            }
+            this.shallowSize = align(headerSize + fieldsSize);
+            this.referenceFields = references.toArray(new Field[references.size()]);
+            this.closed = closed;
+        }
+    }
+
+    /**
+     * The elements sampled from a container
+     */
+    private static final class Sampling {
+
+        final int count;
+        final List<Object> roots = new ArrayList<Object>();
+        // Size of the objects reached from just one sample, and from more than one
+        long privateSize;
+        long sharedSize;
+
+        Sampling(int count) {
+            this.count = count;
+        }
+
+        long estimate(Map<Object, Owner> owners) {
+            // Sampled elements that are shared are counted once, they are not extrapolated
+            int sharedRoots = 0;
+            for (int i = 0; i < roots.size(); i++) {
+                Object root = roots.get(i);
+                if (root == null) continue;
+
+                Owner owner = owners.get(root);
+                if (owner == null || owner.shared || owner.sampling != this || owner.sample != i) sharedRoots++;
+            }
+            int samples = roots.size() - sharedRoots;
+            return samples <= 0 ? sharedSize : privateSize * (count - sharedRoots) / samples + sharedSize;
+        }
+    }
+
+    /**
+     * The sample that first reached an object
+     */
+    private static final class Owner {
+
+        final Sampling sampling;
+        final int sample;
+        final boolean root;
+        final long size;
+        boolean shared;
+
+        Owner(Sampling sampling, int sample, boolean root, long size) {
+            this.sampling = sampling;
+            this.sample = sample;
+            this.root = root;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The state of a walk in progress
+     */
+    private static final class Scratch extends GraphScratch<Scratch> {
+
+        private IdentityHashMap<Object, Object> visited = new IdentityHashMap<Object, Object>();
+        private IdentityHashMap<Object, Owner> owners = new IdentityHashMap<Object, Owner>();
+        private ArrayList<Object> stack = new ArrayList<Object>();
+        private ArrayList<Object> claimed = new ArrayList<Object>();
+        private final ArrayList<Object> pending = new ArrayList<Object>();
+        private final ArrayList<Object> marking = new ArrayList<Object>();
+        private final ArrayList<Sampling> samplings = new ArrayList<Sampling>();
+
+        @Override
+        Scratch newScratch() {
+            return new Scratch();
+        }
+
+        @Override
+        void clear() {
+            IdentityHashMap<Object, Object> previous = visited;
+            visited = reset(visited);
+            // The lists grow with the visited objects
+            if (visited != previous) {
+                stack = new ArrayList<Object>();
+                claimed = new ArrayList<Object>();
+            } else {
+                stack.clear();
+                claimed.clear();
+            }
+            owners = reset(owners);
+            pending.clear();
+            marking.clear();
+            samplings.clear();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import mcaligares.utils.reflections.validation.Validators;
+
+/**
+ * A set of methods to build the reflection metadata of known classes up front, so the first uses
+ * after a deploy do not pay for it. Warming up a class resolves its fields, makes them accessible,
+ * indexes them by annotation and compiles its validator.
+ * 
+ * @author miguel
+ *
+ * @see {@link WarmupReport}
+ */
+public final class Warmup {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private Warmup() {
+    }
+
+    /**
+     * Warm up the classes, each one in a task submitted to the executor. This method does not wait
+     * for the tasks, use the returned report to wait until all the classes are warmed up. If the
+     * executor is null the classes are warmed up in the current thread. A task rejected by the
+     * executor is reported as a failure of its class.
+     * 
+     * @param classes
+     *            to warm up
+     * @param executor
+     *            where the classes are warmed up
+     * @return the report of the warm-up
+     */
+    public static final WarmupReport warmUp(final Collection<? extends Class<?>> classes, final Executor executor) {
+        // Ignore null and duplicated classes
+        Set<Class<?>> distinct = new LinkedHashSet<Class<?>>();
+        if (classes != null) distinct.addAll(classes);
+        distinct.remove(null);
+
+        final List<Class<?>> list = new ArrayList<Class<?>>(distinct);
+        final WarmupReport report = new WarmupReport(list);
+        for (int i = 0; i < list.size(); i++) {
+            final int index = i;
+            Runnable task = new Runnable() {
+                public void run() {
+                    warmUp(list.get(index), index, report);
+                }
+            };
+            if (executor == null) {
+                task.run();
+                continue;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The report still finishes, with the class as failed
+                report.completed(index, 0, e);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Warm up all the classes found in the packages, see {@link #findClasses(String, ClassLoader)}
+     * 
+     * @param packagePrefixes
+     *            corresponding to the packages where will try to find the classes
+     * @param classLoader
+     *            where will try to find the classes, if null the context class loader is used
+     * @param executor
+     *            where the classes are warmed up
+     * @return the report of the warm-up
+     * @throws IOException
+     *             if the class loader resources can not be read
+     * @see {@link #warmUp(Collection, Executor)}
+     */
+    public static final WarmupReport warmUpPackages(final Collection<String> packagePrefixes,
+            final ClassLoader classLoader, final Executor executor) throws IOException {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        if (packagePrefixes != null) {
+            for (String packagePrefix : packagePrefixes) {
+                classes.addAll(findClasses(packagePrefix, classLoader));
+            }
+        }
+        return warmUp(classes, executor);
+    }
+
+    /**
+     * Return all the classes of the package and its subpackages that can be loaded by the class
+     * loader. The classes are searched in directories and jar files, and are not initialized.
+     * 
+     * @param packagePrefix
+     *            corresponding to the package name, e.g. "com.acme.model"
+     * @param classLoader
+     *            where will try to find the classes, if null the context class loader is used
+     * @return a list of classes, empty if no class was found
+     * @throws IOException
+     *             if the class loader resources can not be read
+     */
+    public static final List<Class<?>> findClasses(final String packagePrefix, final ClassLoader classLoader)
+            throws IOException {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        if (packagePrefix == null || packagePrefix.length() == 0) return classes;
+
+        ClassLoader loader = classLoader != null ? classLoader : Thread.currentThread().getContextClassLoader();
+        if (loader == null) loader = Warmup.class.getClassLoader();
+
+        String path = packagePrefix.replace('.', '/');
+        Set<String> classNames = new LinkedHashSet<String>();
+        Enumeration<URL> resources = loader.getResources(path);
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            if ("file".equals(resource.getProtocol())) {
+                findClassNames(toFile(resource), packagePrefix, classNames);
+            } else if ("jar".equals(resource.getProtocol())) {
+                findClassNames(resource, path, classNames);
+            }
+        }
+
+        for (String className : classNames) {
+            try {
+                classes.add(Class.forName(className, false, loader));
+            } catch (ClassNotFoundException e) {
+                // Skip classes that can not be loaded
+            } catch (LinkageError e) {
+                // Skip classes with missing dependencies
+            }
+        }
+        return classes;
+    }
+
+    private static void warmUp(Class<?> clazz, int index, WarmupReport report) {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            for (Field field : ReflectionUtils.getCachedFields(clazz)) {
+                makeAccessible(field);
+                for (Annotation annotation : field.getAnnotations()) {
+                    ReflectionUtils.getCachedFieldsWithAnnotation(clazz, annotation.annotationType());
+                }
+            }
+            Validators.getValidator(clazz);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        report.completed(index, System.nanoTime() - start, failure);
+    }
+
+    private static void makeAccessible(Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException e) {
+            // Not allowed, e.g. a field of a class in a closed module
+        }
+    }
+
+    private static File toFile(URL resource) {
+        try {
+            return new File(resource.toURI());
+        } catch (URISyntaxException e) {
+            return new File(resource.getPath());
+        }
+    }
+
+    private static void findClassNames(File directory, String packageName, Set<String> classNames) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                findClassNames(file, packageName + "." + name, classNames);
+            } else if (isClassName(name)) {
+                classNames.add(packageName + "." + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+            }
+        }
+    }
+
+    private static void findClassNames(URL resource, String path, Set<String> classNames) throws IOException {
+        URLConnection connection = resource.openConnection();
+        if (!(connection instanceof JarURLConnection)) return;
+
+        JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.startsWith(path + "/") && isClassName(name.substring(name.lastIndexOf('/') + 1))) {
+                classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+            }
+        }
+    }
+
+    private static boolean isClassName(String fileName) {
+        return fileName.endsWith(CLASS_SUFFIX) && !fileName.equals("package-info.class")
+                && !fileName.equals("module-info.class");
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The progress and timing of a warm-up started by {@link Warmup}. The report can be used by a
+ * readiness probe to wait until all the classes are warmed up.
+ * 
+ * @author miguel
+ *
+ */
+public final class WarmupReport {
+
+    private final List<Class<?>> classes;
+    private final boolean[] done;
+    private final long[] times;
+    private final Throwable[] failures;
+    private final AtomicInteger pending;
+    private final CountDownLatch latch;
+    private final long startTime;
+    private volatile long endTime;
+
+    WarmupReport(List<Class<?>> classes) {
+        this.classes = classes;
+        this.done = new boolean[classes.size()];
+        this.times = new long[classes.size()];
+        this.failures = new Throwable[classes.size()];
+        this.pending = new AtomicInteger(classes.size());
+        this.latch = new CountDownLatch(classes.isEmpty() ? 0 : 1);
+        this.startTime = System.nanoTime();
+        if (classes.isEmpty()) endTime = startTime;
+    }
+
+    void completed(int index, long time, Throwable failure) {
+        synchronized (this) {
+            done[index] = true;
+            times[index] = time;
+            failures[index] = failure;
+        }
+        // The end time is set before releasing the waiting threads
+        if (pending.decrementAndGet() == 0) {
+            endTime = System.nanoTime();
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Return the classes to warm up, in the order they were submitted
+     */
+    public List<Class<?>> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Return true if all the classes are warmed up, otherwise return false
+     */
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Return the number of classes still not warmed up
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Wait until all the classes are warmed up
+     * 
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        latch.await();
+    }
+
+    /**
+     * Wait until all the classes are warmed up, or the timeout elapses
+     * 
+     * @param timeout
+     * @param unit
+     * @return true if all the classes are warmed up, false if the timeout elapsed before
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return latch.await(timeout, unit);
+    }
+
+    /**
+     * Return the time spent warming up each class already done, in nanoseconds, in the order the
+     * classes were submitted
+     */
+    public Map<Class<?>, Long> getTimes() {
+        Map<Class<?>, Long> result = new LinkedHashMap<Class<?>, Long>();
+        synchronized (this) {
+            for (int i = 0; i < times.length; i++) {
+                if (done[i]) result.put(classes.get(i), times[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the error thrown while warming up each class that failed
+     */
+    public Map<Class<?>, Throwable> getFailures() {
+        Map<Class<?>, Throwable> result = new LinkedHashMap<Class<?>, Throwable>();
+        synchronized (this) {
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] != null) result.put(classes.get(i), failures[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the elapsed time since the warm-up started until it was done, or until now if it is
+     * not done yet
+     * 
+     * @param unit
+     * @return the elapsed time in the specified unit
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        long end = isDone() ? endTime : System.nanoTime();
+        return unit.convert(end - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupReport[classes=" + classes.size() + ", pending=" + getPending() + ", failures="
+                + getFailures().size() + ", elapsed=" + getElapsedTime(TimeUnit.MILLISECONDS) + "ms]";
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import mcaligares.utils.reflections.ReflectionUtils;
+
+/**
+ * A validator compiled for a specific class. The annotated fields and their constraints are
+ * resolved once, when the validator is created, so validating a bean only reads the field values.
+ * 
+ * @author miguel
+ *
+ * @see {@link Validators#getValidator(Class)}
+ */
+public final class BeanValidator<T> {
+
+    private final Class<T> beanClass;
+    private final Field[] fields;
+    private final Constraint[][] constraints;
+
+    BeanValidator(Class<T> beanClass) {
+        this.beanClass = beanClass;
+
+        List<Field> annotatedFields = ReflectionUtils.getFieldsWithAnyAnnotations(beanClass, Constraint.ANNOTATIONS);
+        if (annotatedFields == null) annotatedFields = new ArrayList<Field>();
+
+        this.fields = new Field[annotatedFields.size()];
+        this.constraints = new Constraint[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = annotatedFields.get(i);
+            // Suppress java language access once, not on every read
+            field.setAccessible(true);
+            fields[i] = field;
+            constraints[i] = compile(field);
+        }
+    }
+
+    private static Constraint[] compile(Field field) {
+        List<Constraint> compiled = new ArrayList<Constraint>();
+        for (Annotation annotation : field.getAnnotations()) {
+            Constraint constraint = Constraint.create(annotation);
+            if (constraint != null) compiled.add(constraint);
+        }
+        return compiled.toArray(new Constraint[compiled.size()]);
+    }
+
+    /**
+     * Return the class validated by this validator
+     */
+    public Class<T> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * Return true if the class has at least one constrained field, otherwise return false
+     */
+    public boolean hasConstraints() {
+        return fields.length > 0;
+    }
+
+    /**
+     * Validate a bean and add the violations found to the result
+     * 
+     * @param bean
+     * @param result
+     *            where the violations are added
+     * @return true if the bean is valid, otherwise return false
+     */
+    public boolean validate(T bean, ValidationResult result) {
+        return validate(bean, -1, result);
+    }
+
+    /**
+     * Validate all the beans of the list and add the violations found to the result
+     * 
+     * @param beans
+     * @param result
+     *            where the violations are added
+     * @return true if all the beans are valid, otherwise return false
+     */
+    public boolean validateAll(List<? extends T> beans, ValidationResult result) {
+        boolean valid = true;
+        for (int i = 0, size = beans.size(); i < size; i++) {
+            valid &= validate(beans.get(i), i, result);
+        }
+        return valid;
+    }
+
+    boolean validate(Object bean, int index, ValidationResult result) {
+        // Checking for objects
+        if (bean == null) return true;
+
+        boolean valid = true;
+        for (int i = 0; i < fields.length; i++) {
+            Object value = read(fields[i], bean);
+            for (Constraint constraint : constraints[i]) {
+                if (!constraint.isValid(value)) {
+                    result.add(bean, index, fields[i], value, constraint.getMessage());
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    private static Object read(Field field, Object bean) {
+        try {
+            return field.get(bean);
+        } catch (IllegalAccessException e) {
+            // Not expected, the field was made accessible when compiled
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A constraint compiled from a field annotation. The annotation parameters are read once, when the
+ * constraint is created, so checking a value never touches the annotation again.
+ * 
+ * @author miguel
+ *
+ */
+abstract class Constraint {
+
+    /** Annotation classes supported by {@link #create(Annotation)} */
+    static final Class<?>[] ANNOTATIONS = { NotNull.class, Size.class, Min.class, Max.class, Pattern.class };
+
+    private final String message;
+
+    Constraint(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Return true if the value satisfies the constraint, otherwise return false
+     */
+    abstract boolean isValid(Object value);
+
+    final String getMessage() {
+        return message;
+    }
+
+    /**
+     * Return the constraint corresponding to the annotation, or null if the annotation is not a
+     * supported constraint
+     */
+    static Constraint create(Annotation annotation) {
+        if (annotation instanceof NotNull) {
+            return new NotNullConstraint(((NotNull) annotation).message());
+        }
+        if (annotation instanceof Size) {
+            Size size = (Size) annotation;
+            String message = size.message().replace("{min}", String.valueOf(size.min()))
+                    .replace("{max}", String.valueOf(size.max()));
+            return new SizeConstraint(message, size.min(), size.max());
+        }
+        if (annotation instanceof Min) {
+            Min min = (Min) annotation;
+            return new RangeConstraint(min.message().replace("{value}", String.valueOf(min.value())), true,
+                    min.value());
+        }
+        if (annotation instanceof Max) {
+            Max max = (Max) annotation;
+            return new RangeConstraint(max.message().replace("{value}", String.valueOf(max.value())), false,
+                    max.value());
+        }
+        if (annotation instanceof Pattern) {
+            Pattern pattern = (Pattern) annotation;
+            return new PatternConstraint(pattern.message().replace("{regexp}", pattern.regexp()), pattern.regexp());
+        }
+        return null;
+    }
+
+    private static final class NotNullConstraint extends Constraint {
+
+        NotNullConstraint(String message) {
+            super(message);
+        }
+
+        @Override
+        boolean isValid(Object value) {
+            return value != null;
+        }
+    }
+
+    private static final class SizeConstraint extends Constraint {
+
+        private final int min;
+        private final int max;
+
+        SizeConstraint(String message, int min, int max) {
+            super(message);
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean isValid(Object value) {
+            if (value == null) return true;
+
+            int size;
+            if (value instanceof CharSequence) size = ((CharSequence) value).length();
+            else if (value instanceof Collection) size = ((Collection<?>) value).size();
+            else if (value instanceof Map) size = ((Map<?, ?>) value).size();
+            else if (value.getClass().isArray()) size = Array.getLength(value);
+            else return false;
+
+            return size >= min && size <= max;
+        }
+    }
+
+    private static final class RangeConstraint extends Constraint {
+
+        private final boolean minimum;
+        private final long bound;
+        private final BigDecimal decimalBound;
+
+        RangeConstraint(String message, boolean minimum, long bound) {
+            super(message);
+            this.minimum = minimum;
+            this.bound = bound;
+            this.decimalBound = BigDecimal.valueOf(bound);
+        }
+
+        @Override
+        boolean isValid(Object value) {
+            if (value == null) return true;
+            if (!(value instanceof Number)) return false;
+
+            int comparison;
+            if (value instanceof BigDecimal || value instanceof BigInteger) {
+                // Big numbers are compared exactly, they do not fit in a long or double
+                BigDecimal number = value instanceof BigDecimal ? (BigDecimal) value
+                        : new BigDecimal((BigInteger) value);
+                comparison = number.compareTo(decimalBound);
+            } else if (value instanceof Double || value instanceof Float) {
+                // Decimal numbers are compared without truncating them
+                double number = ((Number) value).doubleValue();
+                if (Double.isNaN(number)) return false;
+                // Compared numerically, so -0.0 is equal to 0
+                comparison = number < bound ? -1 : (number == bound ? 0 : 1);
+            } else {
+                long number = ((Number) value).longValue();
+                comparison = number < bound ? -1 : (number == bound ? 0 : 1);
+            }
+            return minimum ? comparison >= 0 : comparison <= 0;
+        }
+    }
+
+    private static final class PatternConstraint extends Constraint {
+
+        private final java.util.regex.Pattern pattern;
+
+        PatternConstraint(String message, String regexp) {
+            super(message);
+            this.pattern = java.util.regex.Pattern.compile(regexp);
+        }
+
+        @Override
+        boolean isValid(Object value) {
+            if (value == null) return true;
+            return value instanceof CharSequence && pattern.matcher((CharSequence) value).matches();
+        }
+    }
+
+}
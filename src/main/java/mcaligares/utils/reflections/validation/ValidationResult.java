@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collect the violations found by a validation. A result can be reused between validations by
+ * calling {@link #clear()}, which keeps the allocated capacity.
+ * 
+ * @author miguel
+ *
+ */
+public final class ValidationResult {
+
+    private final ArrayList<Violation> violations;
+    private final List<Violation> view;
+
+    public ValidationResult() {
+        this(16);
+    }
+
+    public ValidationResult(int initialCapacity) {
+        this.violations = new ArrayList<Violation>(initialCapacity);
+        this.view = Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * Return true if no violation was found, otherwise return false
+     */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    /**
+     * Return the number of violations found
+     */
+    public int size() {
+        return violations.size();
+    }
+
+    /**
+     * Return a read-only view of the violations found, in the order of the validated beans
+     */
+    public List<Violation> getViolations() {
+        return view;
+    }
+
+    /**
+     * Remove all the violations, so the result can be reused
+     */
+    public void clear() {
+        violations.clear();
+    }
+
+    void add(Object bean, int index, Field field, Object value, String message) {
+        violations.add(new Violation(bean, index, field, value, message));
+    }
+
+    void addAll(ValidationResult result) {
+        violations.addAll(result.violations);
+    }
+
+    @Override
+    public String toString() {
+        return violations.toString();
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import mcaligares.utils.reflections.ClassCache;
+
+/**
+ * A set of methods to validate beans using the constraint annotations of their fields. The
+ * validator of each class is compiled on first use and shared between threads.
+ * 
+ * @author miguel
+ *
+ * @see {@link NotNull} {@link Size} {@link Min} {@link Max} {@link Pattern}
+ */
+public final class Validators {
+
+    /** Default number of beans validated by each task in parallel mode */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final ClassCache<BeanValidator<?>> VALIDATORS = new ClassCache<BeanValidator<?>>() {
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected BeanValidator<?> create(Class<?> clazz) {
+            return new BeanValidator(clazz);
+        }
+    };
+
+    private Validators() {
+    }
+
+    /**
+     * Return the validator compiled for the class, creating it if it does not exist yet
+     * 
+     * @param clazz
+     * @return the validator of the class, or null if the class is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanValidator<T> getValidator(final Class<T> clazz) {
+        if (clazz == null) return null;
+
+        return (BeanValidator<T>) VALIDATORS.get(clazz);
+    }
+
+    /**
+     * Validate a bean and add the violations found to the result
+     * 
+     * @param bean
+     * @param result
+     *            where the violations are added
+     * @return true if the bean is valid, otherwise return false
+     */
+    public static boolean validate(final Object bean, final ValidationResult result) {
+        if (bean == null) return true;
+        return getValidator(bean.getClass()).validate(bean, -1, result);
+    }
+
+    /**
+     * Validate all the beans of the list and add the violations found to the result. The beans
+     * can be of different classes, the validator is only looked up when the class changes.
+     * 
+     * @param beans
+     * @param result
+     *            where the violations are added
+     * @return true if all the beans are valid, otherwise return false
+     */
+    public static boolean validateAll(final List<?> beans, final ValidationResult result) {
+        if (beans == null) return true;
+        return validateRange(beans, 0, beans.size(), result);
+    }
+
+    /**
+     * An convenience method, equivalent to
+     * {@link #validateAll(List, ValidationResult, ExecutorService, int)} using
+     * {@link #DEFAULT_CHUNK_SIZE}
+     */
+    public static boolean validateAll(final List<?> beans, final ValidationResult result,
+            final ExecutorService executor) {
+        return validateAll(beans, result, executor, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Validate all the beans of the list in parallel, splitting the list in chunks that are
+     * validated by the executor. The violations are added to the result in the order of the list,
+     * as {@link #validateAll(List, ValidationResult)} does. The list must not be modified while it
+     * is validated.
+     * 
+     * @param beans
+     * @param result
+     *            where the violations are added
+     * @param executor
+     *            where the chunks are validated
+     * @param chunkSize
+     *            corresponding to the number of beans validated by each task
+     * @return true if all the beans are valid, otherwise return false
+     */
+    public static boolean validateAll(final List<?> beans, final ValidationResult result,
+            final ExecutorService executor, final int chunkSize) {
+        if (beans == null) return true;
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+
+        // Small batches are not worth the tasks
+        int size = beans.size();
+        if (executor == null || size <= chunkSize) return validateRange(beans, 0, size, result);
+
+        // Submit a task for each chunk
+        List<Future<ValidationResult>> futures = new ArrayList<Future<ValidationResult>>(size / chunkSize + 1);
+        for (int from = 0; from < size; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(from + chunkSize, size);
+            futures.add(executor.submit(new Callable<ValidationResult>() {
+                public ValidationResult call() {
+                    ValidationResult chunkResult = new ValidationResult();
+                    validateRange(beans, start, end, chunkResult);
+                    return chunkResult;
+                }
+            }));
+        }
+
+        // Merge the results in the order of the list
+        boolean valid = true;
+        try {
+            for (Future<ValidationResult> future : futures) {
+                ValidationResult chunkResult = future.get();
+                valid &= chunkResult.isValid();
+                result.addAll(chunkResult);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while validating", e.getCause());
+        } finally {
+            for (Future<ValidationResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return valid;
+    }
+
+    private static boolean validateRange(List<?> beans, int start, int end, ValidationResult result) {
+        boolean valid = true;
+        Class<?> lastClass = null;
+        BeanValidator<?> validator = null;
+        for (int i = start; i < end; i++) {
+            Object bean = beans.get(i);
+            if (bean == null) continue;
+
+            // Most batches are homogeneous, avoid the lookup while the class is the same
+            if (bean.getClass() != lastClass) {
+                lastClass = bean.getClass();
+                validator = getValidator(lastClass);
+            }
+            valid &= validator.validate(bean, i, result);
+        }
+        return valid;
+    }
+
+}
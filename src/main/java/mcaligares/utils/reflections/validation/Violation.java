@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import java.lang.reflect.Field;
+
+/**
+ * A constraint violation found on a field of a bean
+ * 
+ * @author miguel
+ *
+ */
+public final class Violation {
+
+    private final Object bean;
+    private final int index;
+    private final Field field;
+    private final Object value;
+    private final String message;
+
+    Violation(Object bean, int index, Field field, Object value, String message) {
+        this.bean = bean;
+        this.index = index;
+        this.field = field;
+        this.value = value;
+        this.message = message;
+    }
+
+    /**
+     * Return the bean that has the violation
+     */
+    public Object getBean() {
+        return bean;
+    }
+
+    /**
+     * Return the position of the bean in the validated batch, or -1 if the bean was validated alone
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Return the field that has the violation
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Return the invalid value of the field
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Return the message of the violated constraint
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return (index >= 0 ? "[" + index + "] " : "") + field.getDeclaringClass().getSimpleName() + "."
+                + field.getName() + " " + message;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanBase;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class ClassCacheTest {
+
+    @Test
+    public void testPinnedClasses() {
+        ClassCache<Object> cache = new ObjectCache();
+        Object value = cache.get(BeanBase.class);
+        assertThat(cache.get(BeanBase.class), sameInstance(value));
+        assertThat(cache.get(String.class), sameInstance(cache.get(String.class)));
+        assertThat(ClassCache.isPinned(BeanBase.class), is(true));
+        assertThat(ClassCache.isPinned(String.class), is(true));
+
+        cache.clear();
+        assertThat(cache.get(BeanBase.class), not(sameInstance(value)));
+    }
+
+    @Test
+    public void testClassLoaderIsReleased() throws Exception {
+        ClassCache<Object> cache = new ObjectCache();
+        WeakReference<ClassLoader> loader = cacheIsolatedBean(cache);
+
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertThat(loader.get() == null, is(true));
+    }
+
+    @Test
+    public void testCachedFieldsDoNotPinLoader() throws Exception {
+        URLClassLoader loader = isolatedLoader();
+        Class<?> clazz = loader.loadClass(BeanBase.class.getName());
+        assertThat(ClassCache.isPinned(clazz), is(false));
+
+        List<Field> fields = ReflectionUtils.getCachedFields(clazz);
+        assertThat(ReflectionUtils.getCachedFields(clazz), sameInstance(fields));
+        assertThat(fields.get(0).getDeclaringClass(), sameInstance((Object) clazz));
+    }
+
+    private static WeakReference<ClassLoader> cacheIsolatedBean(ClassCache<Object> cache) throws Exception {
+        URLClassLoader loader = isolatedLoader();
+        Class<?> clazz = loader.loadClass(BeanBase.class.getName());
+        assertThat(ClassCache.isPinned(clazz), is(false));
+        Object value = cache.get(clazz);
+        assertThat(cache.get(clazz), sameInstance(value));
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    private static URLClassLoader isolatedLoader() {
+        URL classes = BeanBase.class.getProtectionDomain().getCodeSource().getLocation();
+        return new URLClassLoader(new URL[] { classes }, null);
+    }
+
+    private static final class ObjectCache extends ClassCache<Object> {
+        @Override
+        protected Object create(Class<?> clazz) {
+            return new Object();
+        }
+    }
+
+}
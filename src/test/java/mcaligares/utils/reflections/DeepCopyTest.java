@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.annotation.ElementType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanAddress;
+import mcaligares.utils.reflections.beans.BeanCustomer;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class DeepCopyTest {
+
+    @Test
+    public void testCopyBean() {
+        BeanAddress address = new BeanAddress("Cordoba", "5000");
+        BeanCustomer customer = new BeanCustomer("miguel", address);
+        customer.setId(7);
+        customer.setAddresses(new ArrayList<BeanAddress>(Arrays.asList(address, new BeanAddress("Salta", "4400"))));
+        customer.setTags(new LinkedHashSet<String>(Arrays.asList("a", "b")));
+        customer.setNumbers(new int[] { 1, 2, 3 });
+        customer.setReferrer(customer);
+
+        BeanCustomer copy = DeepCopy.copy(customer);
+        assertThat(copy, not(sameInstance(customer)));
+        assertThat(copy.getId(), is(7));
+        assertThat(copy.getName(), sameInstance(customer.getName()));
+        assertThat(copy.getAddress(), not(sameInstance(address)));
+        assertThat(copy.getAddress().getZip(), is("5000"));
+
+        assertThat(copy.getAddresses(), not(sameInstance(customer.getAddresses())));
+        assertThat(copy.getAddresses().getClass(), is((Object) ArrayList.class));
+        assertThat(copy.getAddresses().get(1).getCity(), is("Salta"));
+        assertThat(copy.getTags(), is(customer.getTags()));
+        assertThat(copy.getTags().getClass(), is((Object) LinkedHashSet.class));
+        assertThat(copy.getNumbers(), not(sameInstance(customer.getNumbers())));
+        assertThat(copy.getNumbers()[2], is(3));
+
+        // Shared references and cycles are kept
+        assertThat(copy.getAddresses().get(0), sameInstance(copy.getAddress()));
+        assertThat(copy.getReferrer(), sameInstance(copy));
+
+        // The scratch structures are reused by the next copy
+        assertThat(DeepCopy.copy(copy).getReferrer(), not(sameInstance(copy.getReferrer())));
+    }
+
+    @Test
+    public void testCopyContainers() {
+        assertThat(DeepCopy.copy(null), nullValue());
+        assertThat(DeepCopy.copy("miguel"), is("miguel"));
+        assertThat(DeepCopy.copy(ElementType.FIELD), is(ElementType.FIELD));
+
+        Date date = new Date();
+        assertThat(DeepCopy.copy(date), allOf(is(date), not(sameInstance(date))));
+
+        BeanAddress[][] matrix = { { new BeanAddress("Cordoba", "5000") }, {} };
+        BeanAddress[][] matrixCopy = DeepCopy.copy(matrix);
+        assertThat(matrixCopy[0][0].getCity(), is("Cordoba"));
+        assertThat(matrixCopy[0][0], not(sameInstance(matrix[0][0])));
+        assertThat(matrixCopy[1].length, is(0));
+
+        Map<String, BeanAddress> map = new HashMap<String, BeanAddress>();
+        map.put("home", new BeanAddress("Cordoba", "5000"));
+        Map<String, BeanAddress> mapCopy = DeepCopy.copy(map);
+        assertThat(mapCopy.getClass(), is((Object) HashMap.class));
+        assertThat(mapCopy.get("home").getZip(), is("5000"));
+        assertThat(mapCopy.get("home"), not(sameInstance(map.get("home"))));
+
+        TreeSet<String> sorted = new TreeSet<String>(Collections.reverseOrder());
+        sorted.addAll(Arrays.asList("a", "b", "c"));
+        TreeSet<String> sortedCopy = DeepCopy.copy(sorted);
+        assertThat(sortedCopy.first(), is("c"));
+
+        EnumSet<ElementType> enumSet = EnumSet.of(ElementType.FIELD, ElementType.TYPE);
+        assertThat(DeepCopy.copy(enumSet), allOf(is(enumSet), not(sameInstance(enumSet))));
+
+        List<BeanAddress> unmodifiable = Collections.unmodifiableList(Arrays.asList(new BeanAddress()));
+        List<BeanAddress> unmodifiableCopy = DeepCopy.copy(unmodifiable);
+        assertThat(unmodifiableCopy.size(), is(1));
+        assertThat(unmodifiableCopy.get(0), not(sameInstance(unmodifiable.get(0))));
+    }
+
+    @Test
+    public void testCopyWithoutDefaultConstructor() {
+        try {
+            DeepCopy.copy(new WithoutDefaultConstructor("miguel"));
+            fail("no default constructor");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCopyKeepsComparator() {
+        PriorityQueue<String> queue = new PriorityQueue<String>(4, Collections.reverseOrder());
+        queue.addAll(Arrays.asList("a", "c", "b"));
+        PriorityQueue<String> queueCopy = DeepCopy.copy(queue);
+        assertThat(queueCopy.peek(), is("c"));
+        assertThat((Object) queueCopy.comparator(), sameInstance((Object) queue.comparator()));
+
+        // Elements that are not Comparable
+        Comparator<BeanAddress> byCity = new Comparator<BeanAddress>() {
+            public int compare(BeanAddress a, BeanAddress b) {
+                return a.getCity().compareTo(b.getCity());
+            }
+        };
+        PriorityBlockingQueue<BeanAddress> blockingQueue = new PriorityBlockingQueue<BeanAddress>(4, byCity);
+        blockingQueue.add(new BeanAddress("Salta", "4400"));
+        blockingQueue.add(new BeanAddress("Cordoba", "5000"));
+        PriorityBlockingQueue<BeanAddress> blockingQueueCopy = DeepCopy.copy(blockingQueue);
+        assertThat(blockingQueueCopy.peek().getCity(), is("Cordoba"));
+        assertThat((Object) blockingQueueCopy.comparator(), sameInstance((Object) byCity));
+
+        TreeSet<String> sorted = new TreeSet<String>(Collections.reverseOrder());
+        sorted.addAll(Arrays.asList("a", "b", "c"));
+        SortedSet<String> unmodifiableCopy = DeepCopy.copy(Collections.unmodifiableSortedSet(sorted));
+        assertThat(unmodifiableCopy.first(), is("c"));
+    }
+
+    @Test
+    public void testCopyKeepsCapacity() {
+        BlockingQueue<String> queue = new LinkedBlockingQueue<String>(100);
+        queue.add("a");
+        BlockingQueue<String> queueCopy = DeepCopy.copy(queue);
+        assertThat(queueCopy.remainingCapacity(), is(99));
+        assertThat(queueCopy.peek(), is("a"));
+
+        queue = new LinkedBlockingQueue<String>();
+        queue.add("a");
+        assertThat(DeepCopy.copy(queue).remainingCapacity(), is(queue.remainingCapacity()));
+
+        queue = new ArrayBlockingQueue<String>(10);
+        assertThat(DeepCopy.copy(queue).remainingCapacity(), is(10));
+
+        queue = new LinkedBlockingDeque<String>(5);
+        queue.add("a");
+        queue.add("b");
+        queueCopy = DeepCopy.copy(queue);
+        assertThat(queueCopy.remainingCapacity(), is(3));
+        assertThat(queueCopy.poll(), is("a"));
+
+        // The int constructor of a subclass is not known to be the capacity
+        try {
+            DeepCopy.copy(new BoundedQueue(5));
+            fail("bounded queue copied without its capacity");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCopyKeepsOrderAndDefaults() {
+        Map<String, Integer> accessOrdered = new LinkedHashMap<String, Integer>(16, 0.75f, true);
+        accessOrdered.put("a", 1);
+        accessOrdered.put("b", 2);
+        accessOrdered.put("c", 3);
+        accessOrdered.get("a");
+        Map<String, Integer> accessOrderedCopy = DeepCopy.copy(accessOrdered);
+        assertThat(accessOrderedCopy.keySet().iterator().next(), is("b"));
+        accessOrderedCopy.get("b");
+        Iterator<String> keys = accessOrderedCopy.keySet().iterator();
+        assertThat(keys.next(), is("c"));
+        assertThat(keys.next(), is("a"));
+        assertThat(keys.next(), is("b"));
+        assertThat(accessOrdered.keySet().iterator().next(), is("b"));
+
+        Properties defaults = new Properties();
+        defaults.setProperty("host", "localhost");
+        defaults.setProperty("port", "80");
+        Properties properties = new Properties(defaults);
+        properties.setProperty("port", "8080");
+        Properties propertiesCopy = DeepCopy.copy(properties);
+        assertThat(propertiesCopy.getProperty("host"), is("localhost"));
+        assertThat(propertiesCopy.getProperty("port"), is("8080"));
+        assertThat(propertiesCopy.containsKey("host"), is(false));
+        defaults.setProperty("host", "example.com");
+        assertThat(propertiesCopy.getProperty("host"), is("localhost"));
+    }
+
+    @Test
+    public void testCopyMutableJdkClass() {
+        for (Object object : new Object[] { new AtomicInteger(1), new StringBuilder("miguel") }) {
+            try {
+                DeepCopy.copy(object);
+                fail("mutable JDK class can not be shared");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        assertThat(DeepCopy.copy(new Object[] { new Object() }).length, is(1));
+    }
+
+    @SuppressWarnings("serial")
+    public static class BoundedQueue extends LinkedBlockingQueue<String> {
+
+        public BoundedQueue() {
+            super();
+        }
+
+        public BoundedQueue(int capacity) {
+            super(capacity);
+        }
+    }
+
+    private static class WithoutDefaultConstructor {
+
+        @SuppressWarnings("unused")
+        private final String name;
+
+        WithoutDefaultConstructor(String name) {
+            this.name = name;
+        }
+    }
+
+}
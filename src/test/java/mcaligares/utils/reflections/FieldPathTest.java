@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanAddress;
+import mcaligares.utils.reflections.beans.BeanCustomer;
+import mcaligares.utils.reflections.beans.BeanWithAnnotations;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class FieldPathTest {
+
+    private BeanCustomer createCustomer() {
+        BeanCustomer customer = new BeanCustomer("miguel", new BeanAddress("Cordoba", "5000"));
+        customer.setId(7);
+        customer.setAddresses(Arrays.asList(new BeanAddress("Rosario", "2000"), new BeanAddress("Salta", "4400")));
+        customer.setTags(new LinkedHashSet<String>(Arrays.asList("a", "b")));
+        customer.setNumbers(new int[] { 1, 2, 3 });
+        return customer;
+    }
+
+    @Test
+    public void testGetValue() {
+        BeanCustomer customer = createCustomer();
+
+        assertThat(FieldPath.compile("name").getValue(customer), is((Object) "miguel"));
+        assertThat(FieldPath.compile("id").getValue(customer), is((Object) 7));
+        assertThat(FieldPath.compile("address.zip").getValue(customer), is((Object) "5000"));
+        assertThat(FieldPath.compile("addresses[1].city").getValue(customer), is((Object) "Salta"));
+        assertThat(FieldPath.compile("tags[1]").getValue(customer), is((Object) "b"));
+        assertThat(FieldPath.compile("numbers[2]").getValue(customer), is((Object) 3));
+        assertThat(FieldPath.compile("[0].zip").getValue(customer.getAddresses()), is((Object) "2000"));
+
+        // Cached field resolved again for another class
+        FieldPath path = FieldPath.compile("name");
+        assertThat(path.getValue(customer), is((Object) "miguel"));
+        BeanWithAnnotations bean = new BeanWithAnnotations();
+        bean.setName("other");
+        assertThat(path.getValue(bean), is((Object) "other"));
+        assertThat(path.getValue(customer), is((Object) "miguel"));
+    }
+
+    @Test
+    public void testNullSafe() {
+        BeanCustomer customer = createCustomer();
+        customer.setAddress(null);
+
+        assertThat(FieldPath.compile("address.zip").getValue(customer), nullValue());
+        assertThat(FieldPath.compile("referrer.address.zip").getValue(customer), nullValue());
+        assertThat(FieldPath.compile("addresses[5].zip").getValue(customer), nullValue());
+        assertThat(FieldPath.compile("address.zip").getValue(null), nullValue());
+
+        try {
+            FieldPath.compile("address.zip", false).getValue(customer);
+            fail("null value in the middle of the path");
+        } catch (NullPointerException e) {
+            assertThat(e.getMessage(), is("Null value at 'address' of field path address.zip"));
+        }
+        try {
+            FieldPath.compile("addresses[5].zip", false).getValue(customer);
+            fail("index out of range");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        for (String path : new String[] { null, "", "a..b", "a.", "a[", "a[x]", "a[-1]", "a[0]b", "a.[0]" }) {
+            try {
+                FieldPath.compile(path);
+                fail("malformed path " + path);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        try {
+            FieldPath.compile("address.street").getValue(createCustomer());
+            fail("field not found");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            FieldPath.compile("name[0]").getValue(createCustomer());
+            fail("not an array or collection");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFieldPathSet() {
+        BeanCustomer customer = createCustomer();
+        FieldPathSet paths = FieldPathSet.compile("name", "address.zip", "addresses[0].zip", "address.city",
+                "addresses[0].city", "referrer.name", "referrer.address.zip", "address");
+        assertThat(paths.size(), is(8));
+        assertThat(paths.getPath(1).getPath(), is("address.zip"));
+
+        Object[] values = paths.getValues(customer);
+        assertThat(Arrays.asList(values), is(Arrays.<Object> asList("miguel", "5000", "2000", "Cordoba", "Rosario",
+                null, null, customer.getAddress())));
+
+        customer.setAddress(null);
+        paths.getValues(customer, values);
+        assertThat(Arrays.asList(values), is(Arrays.<Object> asList("miguel", null, "2000", null, "Rosario", null,
+                null, null)));
+
+        try {
+            FieldPathSet.compile(false, "name", "referrer.name").getValues(customer);
+            fail("null value in the middle of the path");
+        } catch (NullPointerException e) {
+            // Expected
+        }
+    }
+
+}
@@ -18,8 +18,10 @@ package mcaligares.utils.reflections;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
@@ -160,4 +162,46 @@ public class ReflectionTest {
         assertThat(ReflectionUtils.hasAnnotations(field, AnnotationInField.class), is(false));
     }
 
+    @Test
+    public void testCachedFields() {
+        List<Field> fields = ReflectionUtils.getCachedFields(BeanWithAnnotations.class);
+        assertThat(fields.size(), is(5));
+        assertThat(fields, is(ReflectionUtils.getFields(BeanWithAnnotations.class)));
+        assertThat(ReflectionUtils.getCachedFields(BeanWithAnnotations.class), sameInstance(fields));
+        assertThat(ReflectionUtils.getCachedFieldsInClass(BeanWithAnnotations.class).size(), is(4));
+
+        fields = ReflectionUtils.getCachedFieldsWithAnnotation(BeanWithAnnotations.class, AnnotationInField.class);
+        assertThat(fields.size(), is(2));
+        assertThat(ReflectionUtils.getCachedFieldsWithAnnotation(BeanWithAnnotations.class, AnnotationInField.class),
+                sameInstance(fields));
+
+        assertThat(ReflectionUtils.getCachedFields(null).isEmpty(), is(true));
+        assertThat(ReflectionUtils.getCachedFieldsInClass(Object.class).isEmpty(), is(true));
+        assertThat(ReflectionUtils.getCachedFieldsWithAnnotation(BeanWithoutAnnotations.class,
+                AnnotationInField.class).isEmpty(), is(true));
+
+        try {
+            ReflectionUtils.getCachedFields(BeanWithAnnotations.class).clear();
+            fail("cached fields must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFieldsBuffer() {
+        List<Field> buffer = new ArrayList<Field>();
+        assertThat(ReflectionUtils.getFields(BeanWithAnnotations.class, buffer), is(5));
+        assertThat(ReflectionUtils.getFieldsInClass(BeanWithoutAnnotations.class, buffer), is(3));
+        assertThat(buffer.size(), is(8));
+
+        buffer.clear();
+        assertThat(ReflectionUtils.getFieldsWithAnyAnnotations(BeanWithAnnotations.class, buffer,
+                AnnotationInField.class, OtherAnnotationInField.class), is(3));
+        assertThat(ReflectionUtils.getFieldsWithAllAnnotations(BeanWithAnnotations.class, buffer,
+                AnnotationInField.class, OtherAnnotationInField.class), is(1));
+        assertThat(buffer.size(), is(4));
+        assertThat(ReflectionUtils.getFields(null, buffer), is(0));
+    }
+
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.SoftReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanAddress;
+import mcaligares.utils.reflections.beans.BeanBase;
+import mcaligares.utils.reflections.beans.BeanCustomer;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class SizeEstimatorTest {
+
+    // 64 bits with compressed references
+    private final SizeEstimator estimator = new SizeEstimator(12, 4, 8);
+
+    @Test
+    public void testShallowSize() {
+        assertThat(estimator.shallowSize(Object.class), is(16L));
+        assertThat(estimator.shallowSize(BeanBase.class), is(16L));
+        assertThat(estimator.shallowSize(BeanAddress.class), is(24L));
+        assertThat(estimator.shallowSize(BeanCustomer.class), is(40L));
+        assertThat(estimator.shallowSize(null), is(0L));
+
+        assertThat(estimator.shallowSizeOf(new int[3]), is(32L));
+        assertThat(estimator.shallowSizeOf(new long[0]), is(16L));
+        assertThat(estimator.shallowSizeOf(new Object[5]), is(40L));
+        assertThat(estimator.shallowSizeOf(new BeanAddress()), is(24L));
+        assertThat(estimator.shallowSizeOf(null), is(0L));
+
+        assertThat(new SizeEstimator(16, 8, 8).shallowSize(BeanAddress.class), is(32L));
+        assertThat(new SizeEstimator(16, 8, 8).shallowSizeOf(new Object[5]), is(64L));
+    }
+
+    @Test
+    public void testSizeOf() {
+        BeanAddress address = new BeanAddress("Cordoba", "5000");
+        assertThat(estimator.sizeOf(address), is(24L + estimator.sizeOf("Cordoba") + estimator.sizeOf("5000")));
+        assertTrue(estimator.sizeOf("Cordoba") > estimator.shallowSizeOf("Cordoba"));
+
+        // Shared references and cycles are counted once
+        BeanCustomer customer = new BeanCustomer(null, address);
+        customer.setAddresses(new ArrayList<BeanAddress>(Arrays.asList(address)));
+        customer.setReferrer(customer);
+        long addresses = estimator.sizeOf(customer.getAddresses());
+        assertThat(estimator.sizeOf(customer), is(40L + addresses));
+        assertThat(estimator.sizeOf(null), is(0L));
+
+        // Containers include their internal structures
+        List<BeanBase> beans = new ArrayList<BeanBase>();
+        for (int i = 0; i < 10; i++) {
+            beans.add(new BeanBase());
+        }
+        long elements = 10 * 16L;
+        assertTrue(estimator.sizeOf(beans) > elements + estimator.shallowSizeOf(beans));
+        assertTrue(estimator.sizeOf(new LinkedList<BeanBase>(beans)) > estimator.sizeOf(beans));
+        assertTrue(estimator.sizeOf(new HashSet<BeanBase>(beans)) > estimator.sizeOf(beans));
+    }
+
+    @Test
+    public void testSampling() {
+        List<BeanBase> beans = new ArrayList<BeanBase>();
+        for (int i = 0; i < 1000; i++) {
+            beans.add(new BeanBase());
+        }
+        assertThat(estimator.sizeOf(beans, 10), is(estimator.sizeOf(beans)));
+        assertThat(estimator.sizeOf(new HashSet<BeanBase>(beans), 10), is(estimator.sizeOf(new HashSet<BeanBase>(
+                beans))));
+
+        BeanBase[] array = beans.toArray(new BeanBase[beans.size()]);
+        assertThat(estimator.sizeOf(array, 10), is(estimator.sizeOf(array)));
+        assertThat(estimator.sizeOf(beans, 10000), is(estimator.sizeOf(beans)));
+    }
+
+    @Test
+    public void testSamplingSharedReferences() {
+        // All the elements reference the same array, it is counted once
+        int[] shared = new int[200000];
+        List<BeanCustomer> customers = new ArrayList<BeanCustomer>();
+        for (int i = 0; i < 10000; i++) {
+            BeanCustomer customer = new BeanCustomer(null, new BeanAddress());
+            customer.setReferrer(new BeanCustomer());
+            customer.getReferrer().setNumbers(shared);
+            customers.add(customer);
+        }
+        SharedHolder holder = new SharedHolder();
+        holder.customers = customers;
+
+        long exact = estimator.sizeOf(customers);
+        assertThat(estimator.sizeOf(customers, 100), is(exact));
+
+        // The array is also reached through a path that is not sampled
+        holder.numbers = shared;
+        exact = estimator.sizeOf(holder);
+        assertThat(estimator.sizeOf(holder, 100), is(exact));
+
+        // An element referenced from outside the container is counted once
+        holder.numbers = null;
+        holder.first = customers.get(0);
+        assertThat(estimator.sizeOf(holder, 100), is(estimator.sizeOf(holder)));
+
+        // A container with the same element many times
+        List<BeanCustomer> same = new ArrayList<BeanCustomer>(Collections.nCopies(10000, customers.get(0)));
+        assertThat(estimator.sizeOf(same, 100), is(estimator.sizeOf(same)));
+    }
+
+    @Test
+    public void testSamplingOverlappingContainers() {
+        List<BeanCustomer> customers = new ArrayList<BeanCustomer>();
+        for (int i = 0; i < 1000; i++) {
+            customers.add(new BeanCustomer(null, new BeanAddress()));
+        }
+
+        // The elements of the second container were counted by the first one
+        List<BeanCustomer> reversed = new ArrayList<BeanCustomer>(customers);
+        Collections.reverse(reversed);
+        List<List<BeanCustomer>> containers = Arrays.asList(customers, reversed);
+        assertThat(estimator.sizeOf(containers, 10), is(estimator.sizeOf(containers)));
+
+        List<BeanCustomer> subList = new ArrayList<BeanCustomer>(customers.subList(100, 600));
+        containers = Arrays.asList(subList, customers);
+        assertThat(estimator.sizeOf(containers, 10), is(estimator.sizeOf(containers)));
+        containers = Arrays.asList(customers, subList);
+        assertThat(estimator.sizeOf(containers, 10), is(estimator.sizeOf(containers)));
+    }
+
+    @Test
+    public void testStringSize() {
+        String utf16 = "\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d";
+        assertTrue(estimator.sizeOf(utf16) > estimator.sizeOf("aaaaaaaa"));
+        assertThat(estimator.sizeOf(utf16), is(estimator.sizeOf("aaaaaaaaaaaaaaaa")));
+        assertTrue(estimator.sizeOf("aaaaaaaaaaaaaaaaaaaaaaaa") > estimator.sizeOf("aaaaaaaa"));
+    }
+
+    @Test
+    public void testJdkHolders() {
+        int[] numbers = new int[1000000];
+        long numbersSize = estimator.shallowSizeOf(numbers);
+        assertThat(estimator.sizeOf(new AtomicReference<int[]>(numbers)),
+                is(estimator.shallowSize(AtomicReference.class) + numbersSize));
+        assertThat(estimator.sizeOf(new SoftReference<int[]>(numbers)),
+                is(estimator.shallowSize(SoftReference.class) + numbersSize));
+
+        AtomicReferenceArray<int[]> array = new AtomicReferenceArray<int[]>(10);
+        array.set(0, numbers);
+        assertTrue(estimator.sizeOf(array) > numbersSize + estimator.shallowSizeOf(new Object[10]));
+
+        StringBuilder builder = new StringBuilder(100000);
+        assertTrue(estimator.sizeOf(builder) > 100000);
+
+        BigInteger big = BigInteger.ONE.shiftLeft(100000);
+        assertTrue(estimator.sizeOf(big) > 100000 / 8);
+        assertTrue(estimator.sizeOf(new BigDecimal(big, 2)) > estimator.sizeOf(big));
+        assertTrue(estimator.sizeOf(BigDecimal.ONE) < estimator.sizeOf(new BigDecimal(big)));
+    }
+
+    private static class SharedHolder {
+
+        @SuppressWarnings("unused")
+        private int[] numbers;
+        @SuppressWarnings("unused")
+        private BeanCustomer first;
+        @SuppressWarnings("unused")
+        private List<BeanCustomer> customers;
+    }
+
+    @Test
+    public void testDefault() {
+        assertThat(SizeEstimator.getDefault(), notNullValue());
+        assertTrue(SizeEstimator.getDefault().shallowSize(BeanAddress.class) >= 16L);
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanBase;
+import mcaligares.utils.reflections.beans.BeanWithAnnotations;
+import mcaligares.utils.reflections.beans.BeanWithoutAnnotations;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class WarmupTest {
+
+    @Test
+    public void testFindClasses() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        List<Class<?>> classes = Warmup.findClasses("mcaligares.utils.reflections.beans", classLoader);
+        assertThat(classes.contains(BeanBase.class), is(true));
+        assertThat(classes.contains(BeanWithAnnotations.class), is(true));
+        assertThat(classes.contains(BeanWithoutAnnotations.class), is(true));
+
+        // Classes in a jar file
+        classes = Warmup.findClasses("org.junit.runner", classLoader);
+        assertThat(classes.contains(org.junit.runner.JUnitCore.class), is(true));
+
+        assertThat(Warmup.findClasses("mcaligares.not.exist", classLoader).isEmpty(), is(true));
+        assertThat(Warmup.findClasses(null, classLoader).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Class<?>> classes = Arrays.<Class<?>> asList(BeanWithAnnotations.class, BeanWithoutAnnotations.class,
+                    BeanWithAnnotations.class, null);
+            WarmupReport report = Warmup.warmUp(classes, executor);
+            assertThat(report.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(report.isDone(), is(true));
+            assertThat(report.getPending(), is(0));
+            assertThat(report.getClasses().size(), is(2));
+            assertThat(report.getTimes().size(), is(2));
+            assertThat(report.getTimes().keySet().iterator().next(), is((Object) BeanWithAnnotations.class));
+            assertThat(report.getFailures().isEmpty(), is(true));
+        } finally {
+            executor.shutdown();
+        }
+
+        WarmupReport report = Warmup.warmUpPackages(Collections.singletonList("mcaligares.utils.reflections.beans"),
+                null, null);
+        assertThat(report.isDone(), is(true));
+        assertThat(report.getTimes().containsKey(BeanBase.class), is(true));
+
+        report = Warmup.warmUp(null, null);
+        assertThat(report.isDone(), is(true));
+        assertThat(report.getElapsedTime(TimeUnit.NANOSECONDS), is(0L));
+    }
+
+    @Test
+    public void testWarmUpRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        WarmupReport report = Warmup.warmUp(Arrays.<Class<?>> asList(BeanWithAnnotations.class, BeanBase.class),
+                executor);
+        assertThat(report.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(report.getFailures().size(), is(2));
+        assertThat(report.getFailures().get(BeanBase.class), is(RejectedExecutionException.class));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.beans;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class BeanCustomer extends BeanBase {
+
+    private String name;
+    private BeanAddress address;
+    private List<BeanAddress> addresses;
+    private Set<String> tags;
+    private int[] numbers;
+    private BeanCustomer referrer;
+
+    public BeanCustomer() {
+        super();
+    }
+
+    public BeanCustomer(String name, BeanAddress address) {
+        super();
+        this.name = name;
+        this.address = address;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BeanAddress getAddress() {
+        return address;
+    }
+
+    public void setAddress(BeanAddress address) {
+        this.address = address;
+    }
+
+    public List<BeanAddress> getAddresses() {
+        return addresses;
+    }
+
+    public void setAddresses(List<BeanAddress> addresses) {
+        this.addresses = addresses;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public int[] getNumbers() {
+        return numbers;
+    }
+
+    public void setNumbers(int[] numbers) {
+        this.numbers = numbers;
+    }
+
+    public BeanCustomer getReferrer() {
+        return referrer;
+    }
+
+    public void setReferrer(BeanCustomer referrer) {
+        this.referrer = referrer;
+    }
+
+}
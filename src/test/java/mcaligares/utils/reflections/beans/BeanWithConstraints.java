@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.beans;
+
+import java.util.List;
+
+import mcaligares.utils.reflections.validation.Max;
+import mcaligares.utils.reflections.validation.Min;
+import mcaligares.utils.reflections.validation.NotNull;
+import mcaligares.utils.reflections.validation.Pattern;
+import mcaligares.utils.reflections.validation.Size;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class BeanWithConstraints extends BeanBase {
+
+    @NotNull
+    @Size(min = 2, max = 10)
+    private String name;
+
+    @Min(18)
+    @Max(99)
+    private int age;
+
+    @Pattern(regexp = "[0-9]{4}")
+    private String zip;
+
+    @Size(max = 2)
+    private List<String> tags;
+
+    private String notes;
+
+    public BeanWithConstraints() {
+        super();
+    }
+
+    public BeanWithConstraints(String name, int age, String zip) {
+        super();
+        this.name = name;
+        this.age = age;
+        this.zip = zip;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public String getZip() {
+        return zip;
+    }
+
+    public void setZip(String zip) {
+        this.zip = zip;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Miguel Augusto Caligares <mcaligares@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mcaligares.utils.reflections.validation;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import mcaligares.utils.reflections.beans.BeanWithConstraints;
+import mcaligares.utils.reflections.beans.BeanWithoutAnnotations;
+
+/**
+ * 
+ * @author miguel
+ *
+ */
+public class ValidationTest {
+
+    @Test
+    public void testValidator() {
+        BeanValidator<BeanWithConstraints> validator = Validators.getValidator(BeanWithConstraints.class);
+        assertThat(validator, notNullValue());
+        assertThat(validator.hasConstraints(), is(true));
+        assertThat(Validators.getValidator(BeanWithConstraints.class), sameInstance(validator));
+
+        assertThat(Validators.getValidator(BeanWithoutAnnotations.class).hasConstraints(), is(false));
+        assertThat(Validators.getValidator(null), nullValue());
+    }
+
+    @Test
+    public void testValidate() {
+        ValidationResult result = new ValidationResult();
+
+        assertThat(Validators.validate(new BeanWithConstraints("miguel", 30, "5000"), result), is(true));
+        assertThat(result.isValid(), is(true));
+
+        assertThat(Validators.validate(new BeanWithConstraints(null, 30, null), result), is(false));
+        assertThat(result.size(), is(1));
+        assertThat(result.getViolations().get(0).getField().getName(), is("name"));
+        assertThat(result.getViolations().get(0).getMessage(), is("may not be null"));
+        assertThat(result.getViolations().get(0).getIndex(), is(-1));
+
+        result.clear();
+        BeanWithConstraints bean = new BeanWithConstraints("m", 17, "50a0");
+        bean.setTags(Arrays.asList("a", "b", "c"));
+        assertThat(Validators.validate(bean, result), is(false));
+        assertThat(result.size(), is(4));
+        assertThat(result.getViolations().get(0).getMessage(), is("size must be between 2 and 10"));
+        assertThat(result.getViolations().get(1).getMessage(), is("must be greater than or equal to 18"));
+        assertThat(result.getViolations().get(1).getValue(), is((Object) 17));
+        assertThat(result.getViolations().get(2).getMessage(), is("must match \"[0-9]{4}\""));
+        assertThat(result.getViolations().get(3).getMessage(), is("size must be between 0 and 2"));
+
+        result.clear();
+        assertThat(Validators.validate(new BeanWithConstraints("miguel", 100, null), result), is(false));
+        assertThat(result.getViolations().get(0).getMessage(), is("must be less than or equal to 99"));
+    }
+
+    @Test
+    public void testValidateAll() throws Exception {
+        List<Object> beans = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            beans.add(new BeanWithConstraints(i % 10 == 0 ? null : "miguel", 30, "5000"));
+        }
+        beans.add(null);
+        beans.add(new BeanWithoutAnnotations());
+
+        ValidationResult result = new ValidationResult();
+        assertThat(Validators.validateAll(beans, result), is(false));
+        assertThat(result.size(), is(10));
+        assertThat(result.getViolations().get(3).getIndex(), is(30));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ValidationResult parallelResult = new ValidationResult();
+            assertThat(Validators.validateAll(beans, parallelResult, executor, 7), is(false));
+            assertThat(parallelResult.size(), is(10));
+            for (int i = 0; i < 10; i++) {
+                assertThat(parallelResult.getViolations().get(i).getIndex(), is(i * 10));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBigNumbers() {
+        BeanWithBigNumbers bean = new BeanWithBigNumbers();
+        ValidationResult result = new ValidationResult();
+
+        bean.integer = BigInteger.valueOf(2).pow(64).add(BigInteger.valueOf(5));
+        bean.decimal = new BigDecimal("10.0000000000000000001");
+        assertThat(Validators.validate(bean, result), is(false));
+        assertThat(result.size(), is(2));
+
+        result.clear();
+        bean.integer = BigInteger.TEN;
+        bean.decimal = new BigDecimal("9.9999999999999999999");
+        assertThat(Validators.validate(bean, result), is(true));
+
+        bean.integer = BigInteger.valueOf(2).pow(64).negate();
+        bean.decimal = new BigDecimal("-0.0000000000000000001");
+        assertThat(Validators.validate(bean, result), is(false));
+        assertThat(result.size(), is(2));
+
+        // A bound does not limit the other side
+        result.clear();
+        BeanWithMinimum minimum = new BeanWithMinimum();
+        minimum.integer = BigInteger.valueOf(2).pow(64);
+        minimum.number = Double.MAX_VALUE;
+        assertThat(Validators.validate(minimum, result), is(true));
+
+        minimum.number = -0.0;
+        assertThat(Validators.validate(minimum, result), is(true));
+        minimum.number = Double.NaN;
+        assertThat(Validators.validate(minimum, result), is(false));
+    }
+
+    private static class BeanWithBigNumbers {
+
+        @Min(0)
+        @Max(10)
+        private BigInteger integer;
+
+        @Min(0)
+        @Max(10)
+        private BigDecimal decimal;
+    }
+
+    private static class BeanWithMinimum {
+
+        @Min(0)
+        private BigInteger integer;
+
+        @Min(0)
+        private double number;
+    }
+
+}